@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import io.openliberty.elph.util.IO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The catalog's hot paths, measured against generated workspaces of different sizes.
+ * Run with <code>./gradlew jmh</code>, or add e.g. <code>-PjmhIncludes=findProjects</code> to run only some.
+ * <p>
+ * Each query starts from a fixed sample of projects spread across the workspace,
+ * so results for different sizes are comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogBenchmark {
+    private static final int SAMPLE_SIZE = 20;
+    private static final List<String> PATTERNS = List.of(
+            "com.ibm.ws.jdbc*",
+            "*security*",
+            "io.openliberty.{cdi,jaxrs}.*",
+            "com.ibm.ws.kernel.component1",
+            "*_fat");
+
+    @Param({"500", "2000", "10000"})
+    int size;
+
+    private SyntheticWorkspace workspace;
+    private Path settingsDirWithoutDeps;
+    private IO io;
+    private BndCatalog catalog;
+    private List<String> sample;
+    private Set<Path> sampleDeps;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workspace = new SyntheticWorkspace(size);
+        settingsDirWithoutDeps = workspace.settingsDirWithoutDeps();
+        io = new IO();
+        catalog = new BndCatalog(workspace.bndWorkspace, io, workspace.settingsDir);
+        sample = IntStream.range(0, SAMPLE_SIZE).mapToObj(i -> workspace.names.get(i * size / SAMPLE_SIZE)).toList();
+        sampleDeps = Set.copyOf(catalog.getRequiredProjectPaths(sample).toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workspace.close();
+    }
+
+    /** Reads the saved projects, without loading any dependencies */
+    @Benchmark
+    public BndCatalog createCatalog() throws IOException {
+        return new BndCatalog(workspace.bndWorkspace, io, settingsDirWithoutDeps);
+    }
+
+    /** Reads the saved projects and loads the saved dependencies */
+    @Benchmark
+    public BndCatalog createCatalogAndLoadDeps() throws IOException {
+        return new BndCatalog(workspace.bndWorkspace, io, workspace.settingsDir);
+    }
+
+    @Benchmark
+    public List<Path> findProjects() {
+        return catalog.findProjects(PATTERNS.stream()).toList();
+    }
+
+    @Benchmark
+    public List<Path> findProjectsWithOnePattern() {
+        return catalog.findProjects(PATTERNS.get(1)).toList();
+    }
+
+    @Benchmark
+    public List<Path> getRequiredProjectPaths() {
+        return catalog.getRequiredProjectPaths(sample).toList();
+    }
+
+    @Benchmark
+    public List<Path> getDependentProjectPaths() {
+        return catalog.getDependentProjectPaths(sample).toList();
+    }
+
+    @Benchmark
+    public List<Path> getAllDependentProjectPaths() {
+        return catalog.getAllDependentProjectPaths(sample).toList();
+    }
+
+    @Benchmark
+    public Set<Path> getLeavesOfSubset() {
+        return catalog.getLeavesOfSubset(sampleDeps, SAMPLE_SIZE);
+    }
+
+    @Benchmark
+    public List<Path> inTopologicalOrder() {
+        return catalog.inTopologicalOrder(sampleDeps.stream()).toList();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * A generated bnd workspace, shaped roughly like the Open Liberty <code>dev</code> directory,
+ * together with the settings directory elph would keep for it, including an up-to-date dependency save file.
+ * Every project depends on <code>cnf</code>, and on a few projects generated before it:
+ * mostly near neighbours in the same functional area, occasionally anything at all.
+ * As in Open Liberty, some projects have a symbolic name that differs from the project name.
+ * The same size always generates the same workspace.
+ */
+final class SyntheticWorkspace implements AutoCloseable {
+    static final String[] AREAS = {
+            "kernel", "jdbc", "security", "transaction", "jaxrs", "cdi", "jpa", "jms", "microprofile", "webcontainer",
+            "logging", "config", "classloading", "channelfw", "http", "ejb", "jndi", "ssl", "concurrent", "messaging"
+    };
+    private static final String SAVE_FILE = "deps.dat";
+
+    final Path dir;
+    final Path bndWorkspace;
+    final Path settingsDir;
+    final List<String> names = new ArrayList<>();
+
+    SyntheticWorkspace(int size) throws IOException {
+        this.dir = Files.createTempDirectory("elph-jmh-" + size + "-");
+        this.bndWorkspace = Files.createDirectory(dir.resolve("dev"));
+        this.settingsDir = Files.createDirectory(dir.resolve(".elph"));
+        writeProject("cnf", "cnf", "");
+        var random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            String name = name(i);
+            var deps = new TreeSet<String>();
+            int count = i == 0 ? 0 : 2 + random.nextInt(6);
+            for (int k = 0; k < count; k++) {
+                // stay in the same area most of the time, as real projects do
+                int neighbour = i - AREAS.length * (1 + random.nextInt(5));
+                deps.add(name(neighbour >= 0 && random.nextInt(10) < 7 ? neighbour : random.nextInt(i)));
+            }
+            writeProject(name, symbolicName(i), deps.stream().map(d -> d + ";version=latest").collect(joining(", ")));
+            names.add(name);
+        }
+        saveDeps();
+    }
+
+    static String name(int i) {
+        String prefix = i % 3 == 0 ? "io.openliberty." : "com.ibm.ws.";
+        String suffix = i % 7 == 0 ? "_fat" : i % 5 == 0 ? ".internal" : "";
+        return prefix + AREAS[i % AREAS.length] + ".component" + i / AREAS.length + suffix;
+    }
+
+    static String symbolicName(int i) {
+        return i % 4 == 1 ? name(i).replace("com.ibm.ws.", "com.ibm.websphere.") + ".api" : name(i);
+    }
+
+    private void writeProject(String name, String symbolicName, String buildpath) throws IOException {
+        Path project = Files.createDirectory(bndWorkspace.resolve(name));
+        Files.writeString(project.resolve("bnd.bnd"), "Bundle-SymbolicName: " + symbolicName + "\n-buildpath: " + buildpath + "\n");
+    }
+
+    /**
+     * Save the dependencies as elph would after analyzing with bnd,
+     * so that a catalog can be created without bnd ever being queried.
+     * Here the dependencies in the bnd files are the whole story, so they are treated as already analyzed.
+     */
+    private void saveDeps() throws IOException {
+        var catalog = new BndCatalog(bndWorkspace, new IO(), settingsDir);
+        catalog.unanalyzed.clear();
+        catalog.bndQueried = true;
+        var graph = catalog.getGraph();
+        int[][] deps = IntStream.range(0, graph.size()).mapToObj(i -> graph.deps(i).toArray()).toArray(int[][]::new);
+        var projectNames = Stream.of(graph.projects).map(p -> p.name).toList();
+        var fingerprints = Stream.of(graph.projects).map(p -> p.fingerprint).toList();
+        var bytes = new DepsFile(projectNames, fingerprints, deps, graph.depClosures(), graph.components(), graph.ranks()).toBytes();
+        Files.write(settingsDir.resolve(SAVE_FILE), bytes);
+    }
+
+    /** @return a copy of the settings directory without the dependency save file, so every project is still to be analyzed */
+    Path settingsDirWithoutDeps() throws IOException {
+        Path copy = Files.createDirectory(dir.resolve(".elph-without-deps"));
+        try (var files = Files.list(settingsDir)) {
+            for (Path file: files.filter(f -> !f.endsWith(SAVE_FILE)).toList()) Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        return copy;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path p: paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+}
@@ -13,11 +13,14 @@
 package io.openliberty.elph;
 
 import io.openliberty.elph.cmd.ElphCommand;
+import io.openliberty.elph.daemon.Daemon;
 import picocli.CommandLine;
 
 public enum Main {
     ;
     public static void main(String... args) {
+        // let a running daemon answer the command if it can
+        Daemon.forward(args).ifPresent(System::exit);
         System.exit(new CommandLine(new ElphCommand()).setAbbreviatedSubcommandsAllowed(true).execute(args));
     }
 }
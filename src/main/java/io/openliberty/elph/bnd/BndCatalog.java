@@ -13,47 +13,56 @@
 package io.openliberty.elph.bnd;
 
 import io.openliberty.elph.util.IO;
+import io.openliberty.elph.util.OS;
 import me.tongfei.progressbar.ProgressBar;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
-import org.jgrapht.Graph;
-import org.jgrapht.graph.AsSubgraph;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.EdgeReversedGraph;
 import org.jgrapht.graph.SimpleDirectedGraph;
-import org.jgrapht.traverse.TopologicalOrderIterator;
 
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
-import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
-import java.util.Spliterators;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import static io.openliberty.elph.bnd.ProjectPaths.asNames;
+import static io.openliberty.elph.util.OS.WINDOWS;
 import static java.util.Comparator.comparing;
-import static java.util.Spliterator.ORDERED;
 import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toCollection;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 
 public class BndCatalog {
-    private static final String SAVE_FILE = "deps.save";
+    private static final String SAVE_FILE = "deps.dat";
     public static final String SAVE_FILE_DESC = "dependency save file";
+    private static final String PROJECTS_FILE = "projects.dat";
+    public static final String PROJECTS_FILE_DESC = "project save file";
+    public static final String EXPORT_FILE_DESC = "dependency export file";
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
 
     private static<T> SimpleDirectedGraph<T, DefaultEdge> newGraph() {
         return new SimpleDirectedGraph<>(DefaultEdge.class);
@@ -62,123 +71,339 @@ public class BndCatalog {
     final Path root;
     final IO io;
     final Path saveFile;
+    final Path projectsFile;
     final SimpleDirectedGraph<BndProject, DefaultEdge> digraph = newGraph();
     final Map<String, BndProject> nameIndex = new TreeMap<>();
     final MultiValuedMap<Path, BndProject> pathIndex = new HashSetValuedHashMap<>();
+    /** The projects whose dependencies have not yet been retrieved from bnd */
+    final Set<BndProject> unanalyzed = new HashSet<>();
     volatile boolean bndQueried;
+    /**
+     * Kept for re-use, e.g. when the catalog is long-lived and individual projects are refreshed.
+     * A bnd workspace lazily loads and caches its projects and repositories, and is not documented as thread-safe,
+     * so each is only ever used by one thread at a time, with one for each worker thread querying bnd.
+     */
+    private final Queue<BndWorkspace> idleBndWorkspaces = new ConcurrentLinkedQueue<>();
+    /** Built on first use, and discarded whenever the path index changes */
+    private volatile GlobIndex globIndex;
+    /** Built on first use, and discarded whenever the graph changes */
+    private volatile DependencyGraph graph;
+    /** The save file, if its closures and ranks are still valid for the graph as loaded */
+    private DepsFile savedGraph;
+    /** The fingerprint of the save file when it was last read or written, if it could be trusted */
+    private Optional<String> saveFileFingerprint = Optional.empty();
+    private final Map<String, PathMatcher> matchers = new ConcurrentHashMap<>();
 
     public BndCatalog(Path bndWorkspace, IO io, Path repoSettingsDir) throws IOException {
         this.io = io;
         this.root = bndWorkspace;
         this.saveFile = repoSettingsDir.resolve(SAVE_FILE);
+        this.projectsFile = repoSettingsDir.resolve(PROJECTS_FILE);
         // add the vertices
-        try (var files = Files.list(bndWorkspace)) {
-            files
-                    .filter(Files::isDirectory)                            // for every subdirectory
-                    .filter(p -> Files.exists(p.resolve("bnd.bnd"))) // that has a bnd file
-                    .map(BndProject::new)                                  // create a Project object
-                    .forEach(digraph::addVertex);                          // add it as a vertex to the graph
-        }
+        loadProjects().forEach(digraph::addVertex);
 
-        // index projects by name
-        digraph.vertexSet().stream()
-                .peek(p -> nameIndex.put(p.name, p))
-                .peek(p -> pathIndex.put(p.root.getFileName(), p))
-                .filter(BndProject::symbolicNameDiffersFromName)
-                .forEach(p -> nameIndex.put(p.symbolicName, p));
+        // index projects by name and symbolic name
+        digraph.vertexSet().forEach(this::index);
 
+        // add the edges
+        digraph.vertexSet().forEach(this::addInitialDeps);
 
+        // re-load deps if possible
+        unanalyzed.addAll(digraph.vertexSet());
+        loadDeps();
+    }
+
+    private void index(BndProject p) {
+        globIndex = null;
+        nameIndex.put(p.name, p);
+        if (p.symbolicNameDiffersFromName()) nameIndex.put(p.symbolicName, p);
         // index projects by name and by symbolic name as paths
         // (even if those paths don't exist)
         // to allow globbing searches on them
-        nameIndex.forEach((name, project) -> pathIndex.put(Paths.get(name), project));
+        pathIndex.put(Paths.get(p.name), p);
+        if (p.symbolicNameDiffersFromName()) pathIndex.put(Paths.get(p.symbolicName), p);
+    }
 
-        // add the edges
-        digraph.vertexSet().forEach(p -> p.initialDeps.stream()
+    private void unindex(BndProject p) {
+        globIndex = null;
+        nameIndex.values().removeIf(p::equals);
+        pathIndex.removeMapping(Paths.get(p.name), p);
+        if (p.symbolicNameDiffersFromName()) pathIndex.removeMapping(Paths.get(p.symbolicName), p);
+    }
+
+    /**
+     * Add the dependencies that are known without asking bnd.
+     */
+    private void addInitialDeps(BndProject p) {
+        p.initialDeps.stream()
                 .map(nameIndex::get)
                 .filter(Objects::nonNull)
                 .filter(not(p::equals))
-                .forEach(q -> digraph.addEdge(p, q)));
+                .forEach(q -> digraph.addEdge(p, q));
 
         // make everything depend on 'cnf'
         var cnf = nameIndex.get("cnf");
-        digraph.vertexSet().stream().filter(not(cnf::equals)).forEach(p -> digraph.addEdge(p, cnf));
+        if (null != cnf && p != cnf) digraph.addEdge(p, cnf);
 
         // make some bundles depend on build.image
         var buildImage = nameIndex.get("build.image");
+        if (null != buildImage && p != buildImage && !p.isNoBundle && !p.publishWlpJarDisabled) digraph.addEdge(p, buildImage);
+    }
+
+    /**
+     * Re-read the bnd files in a single project directory, e.g. after they have changed.
+     * This also handles directories that have gained or lost a bnd file.
+     * The project's dependencies will be retrieved from bnd again when next required.
+     */
+    public synchronized void refreshProject(Path dir) {
+        var name = dir.getFileName().toString();
+        var users = new HashSet<BndProject>();
+        var old = digraph.vertexSet().stream().filter(p -> p.name.equals(name)).findFirst().orElse(null);
+        boolean hasBndFile = Files.exists(dir.resolve("bnd.bnd"));
+        if (null == old && !hasBndFile) return;
+        if (null != old) {
+            digraph.incomingEdgesOf(old).stream().map(digraph::getEdgeSource).forEach(users::add);
+            unindex(old);
+            digraph.removeVertex(old);
+            unanalyzed.remove(old);
+            io.logf("Removed project %s from catalog", old);
+        }
+        // bnd caches the contents of bnd files, so it will need to be re-initialised
+        idleBndWorkspaces.clear();
+        graph = null;
+        savedGraph = null;
+        if (!hasBndFile) {
+            bndQueried = unanalyzed.isEmpty();
+            return;
+        }
+        var p = new BndProject(dir);
+        digraph.addVertex(p);
+        index(p);
+        addInitialDeps(p);
+        // restore the dependencies on this project, including any newly resolvable ones
         digraph.vertexSet().stream()
-                .filter(not(p -> p.isNoBundle))
-                .filter(not(p -> p.publishWlpJarDisabled))
-                .forEach(p -> digraph.addEdge(p, buildImage));
+                .filter(q -> q.initialDeps.contains(p.name) || q.initialDeps.contains(p.symbolicName))
+                .forEach(users::add);
+        users.stream()
+                .filter(digraph::containsVertex)
+                .filter(not(p::equals))
+                .forEach(q -> digraph.addEdge(q, p));
+        unanalyzed.add(p);
+        bndQueried = false;
+        io.logf("Refreshed project %s in catalog", p);
+    }
 
-        // re-load deps if possible
-        loadDeps();
+    /**
+     * Find the projects in the bnd workspace, re-using the saved snapshot for every project whose bnd files are unchanged.
+     * If the workspace directory itself is unchanged, no projects have been added or removed, so it is not even listed.
+     */
+    private List<BndProject> loadProjects() throws IOException {
+        long workspaceTimestamp = Files.getLastModifiedTime(root).toMillis();
+        var snapshot = readProjectsFile();
+        var saved = snapshot.stream()
+                .map(f -> f.projects)
+                .flatMap(Collection::stream)
+                .collect(toMap(p -> p.name, p -> p));
+        boolean workspaceUnchanged = snapshot.filter(f -> f.workspaceTimestamp == workspaceTimestamp).isPresent();
+        final List<Path> dirs;
+        if (workspaceUnchanged) {
+            dirs = saved.values().stream().map(p -> p.root).toList();
+        } else try (var files = Files.list(root)) {
+            dirs = files.toList();
+        }
+        // stat and (if necessary) parse the bnd files concurrently,
+        // then sort the projects so that the indexes and the graph are built in a predictable order
+        var projects = dirs.parallelStream()
+                .filter(Files::isDirectory)
+                .map(dir -> loadProject(dir, saved.get(dir.getFileName().toString())))
+                .filter(Objects::nonNull)
+                .sorted(comparing(p -> p.name))
+                .toList();
+        long parsed = projects.stream().filter(p -> p != saved.get(p.name)).count();
+        io.logf("Parsed bnd files for %d of %d projects", parsed, projects.size());
+        if (!workspaceUnchanged || parsed > 0 || projects.size() < saved.size())
+            io.replaceFile(PROJECTS_FILE_DESC, projectsFile, new ProjectsFile(workspaceTimestamp, projects).toBytes());
+        return projects;
+    }
+
+    /**
+     * @return the saved project if its bnd files are unchanged, a newly parsed project, or <code>null</code> if there is no bnd file
+     */
+    private static BndProject loadProject(Path dir, BndProject saved) {
+        if (null != saved && saved.fingerprint.equals(BndProject.fingerprint(dir))) return saved;
+        if (Files.exists(dir.resolve("bnd.bnd"))) return new BndProject(dir);
+        return null;
+    }
+
+    private Optional<ProjectsFile> readProjectsFile() {
+        if (!Files.exists(projectsFile)) return Optional.empty();
+        try {
+            var contents = ProjectsFile.read(projectsFile, root);
+            if (contents.isEmpty()) io.logf("Ignoring %s in unknown format: %s", PROJECTS_FILE_DESC, projectsFile);
+            return contents;
+        } catch (IOException | RuntimeException e) {
+            io.warn("Could not read from " + PROJECTS_FILE_DESC + ": " + projectsFile, e);
+            return Optional.empty();
+        }
     }
 
     private void analyzeDependenciesUsingBnd() {
+        analyzeDependenciesUsingBnd(DEFAULT_THREADS);
+    }
+
+    private void analyzeDependenciesUsingBnd(int threads) {
         if (bndQueried) return;
         synchronized (this) {
             if (bndQueried) return;
-            var bnd = new BndWorkspace(io, root, nameIndex::get);
-            Set<BndProject> bndProjects = digraph.vertexSet();
-            for(BndProject p: ProgressBar.wrap(bndProjects, "Analyzing dependencies using bnd")) bnd
-                    .getBuildAndTestDependencies(p)
-                    .filter(not(p::equals))
-                    .forEach(q -> digraph.addEdge(p,q));
-
-            var text = digraph.edgeSet()
-                    .stream()
-                    .map(this::formatEdge)
-                    .collect(joining("\n", "", "\n"));
-            io.writeFile(SAVE_FILE_DESC, saveFile, text);
+            var bndProjects = new ArrayList<>(unanalyzed);
+            // create a bnd workspace for each worker up front, so that none are created concurrently
+            while (idleBndWorkspaces.size() < Math.min(threads, bndProjects.size())) idleBndWorkspaces.add(new BndWorkspace(io, root, nameIndex::get));
+            // query bnd concurrently, but only ever modify the graph from this thread
+            var pool = Executors.newFixedThreadPool(threads);
+            try (var progress = new ProgressBar("Analyzing dependencies using bnd", bndProjects.size())) {
+                var results = new ExecutorCompletionService<Map.Entry<BndProject, List<BndProject>>>(pool);
+                bndProjects.forEach(p -> results.submit(() -> Map.entry(p, queryBnd(p))));
+                for (int i = 0; i < bndProjects.size(); i++) {
+                    var result = results.take().get();
+                    var p = result.getKey();
+                    result.getValue().stream()
+                            .filter(not(p::equals))
+                            .forEach(q -> digraph.addEdge(p, q));
+                    unanalyzed.remove(p);
+                    progress.step();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw io.error("Interrupted while analyzing dependencies using bnd", e);
+            } catch (ExecutionException e) {
+                throw io.error("Failed to analyze dependencies using bnd", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            saveDeps();
             bndQueried = true;
         }
     }
 
-    public void reanalyze() {
+    /**
+     * Re-load the dependencies if the save file may have been written by another process since it was last read or written,
+     * e.g. when a long-lived catalog outlives an <code>elph analyze</code> run elsewhere.
+     */
+    public synchronized void reloadIfSaveFileChanged() {
+        if (saveFileFingerprint.isPresent() && saveFileFingerprint.equals(SaveFiles.fingerprint(saveFile))) return;
+        io.logf("Reloading changed %s: %s", SAVE_FILE_DESC, saveFile);
+        digraph.removeAllEdges(new ArrayList<>(digraph.edgeSet()));
+        digraph.vertexSet().forEach(this::addInitialDeps);
+        unanalyzed.addAll(digraph.vertexSet());
         bndQueried = false;
+        graph = null;
+        savedGraph = null;
+        loadDeps();
+    }
+
+    /** Query bnd using a workspace that no other thread is using: there is one for each worker */
+    private List<BndProject> queryBnd(BndProject p) {
+        var workspace = Objects.requireNonNull(idleBndWorkspaces.poll());
+        try {
+            return workspace.getBuildAndTestDependencies(p).toList();
+        } finally {
+            idleBndWorkspaces.add(workspace);
+        }
+    }
+
+    public void reanalyze() {
+        reanalyze(DEFAULT_THREADS);
+    }
+
+    public void reanalyze(int threads) {
+        synchronized (this) {
+            unanalyzed.addAll(digraph.vertexSet());
+            bndQueried = false;
+        }
+        analyzeDependenciesUsingBnd(threads);
+    }
+
+    /**
+     * Rebuild the read-only graph, including its transitive closures, components and ranks, and save it.
+     */
+    private void saveDeps() {
+        var newGraph = new DependencyGraph(digraph);
+        int[][] deps = IntStream.range(0, newGraph.size()).mapToObj(i -> newGraph.deps(i).toArray()).toArray(int[][]::new);
+        var names = Stream.of(newGraph.projects).map(p -> p.name).toList();
+        var fingerprints = Stream.of(newGraph.projects).map(p -> p.fingerprint).toList();
+        var bytes = new DepsFile(names, fingerprints, deps, newGraph.depClosures(), newGraph.components(), newGraph.ranks()).toBytes();
+        graph = newGraph;
+        savedGraph = null;
+        io.replaceFile(SAVE_FILE_DESC, saveFile, bytes);
+        saveFileFingerprint = SaveFiles.fingerprint(saveFile);
+        int cycles = newGraph.cycles().size();
+        if (cycles > 0) io.warn("Found " + cycles + " dependency cycle(s) between projects. Run 'elph check' for details.");
+    }
+
+    /**
+     * Write out the dependencies in text form, one <code>"a -> b"</code> line per dependency.
+     */
+    public void exportDeps(Path file) {
         analyzeDependenciesUsingBnd();
+        var text = digraph.edgeSet()
+                .stream()
+                .map(this::formatEdge)
+                .sorted()
+                .collect(joining("\n", "", "\n"));
+        io.writeFile(EXPORT_FILE_DESC, file, text);
     }
 
     private String formatEdge(DefaultEdge e) {
         return "%s -> %s".formatted(digraph.getEdgeSource(e), digraph.getEdgeTarget(e));
     }
 
+    /**
+     * Re-load the dependencies of every project whose bnd files are unchanged since the save file was written.
+     * Any other projects remain unanalyzed, so only they need to be queried using bnd.
+     */
     private void loadDeps() {
+        // take the fingerprint before reading, so that a write while reading is picked up next time
+        saveFileFingerprint = SaveFiles.fingerprint(saveFile);
         if (!Files.exists(saveFile)) return;
-        FileTime saveTime = IO.getLastModified(saveFile);
-        Predicate<BndProject> isNewer = p -> saveTime.compareTo(p.timestamp) < 0;
-        var newerCount = nameIndex.values()
-                .stream()
-                .filter(isNewer)
-                .peek(p -> io.debugf("bnd file for %s is newer than save file %s", p, saveFile))
-                .count();
-        io.logf("%d projects have bnd files newer than %s", newerCount, saveFile);
-        if (newerCount > 0) return;
-        io.readFile(SAVE_FILE_DESC, saveFile, this::loadDep);
-        bndQueried = true;
-    }
-
-    private void loadDep(String dep) {
-        String[] parts = dep.split(" -> ");
-        if (parts.length != 2) {
-            io.warn("Failed to parse dependency", dep);
+        final DepsFile saved;
+        try {
+            var contents = DepsFile.read(saveFile);
+            if (contents.isEmpty()) {
+                io.logf("Ignoring %s in unknown format: %s", SAVE_FILE_DESC, saveFile);
+                return;
+            }
+            saved = contents.get();
+        } catch (IOException | RuntimeException e) {
+            io.warn("Could not read from " + SAVE_FILE_DESC + ": " + saveFile, e);
             return;
         }
-        BndProject source = nameIndex.get(parts[0]);
-        BndProject target = nameIndex.get(parts[1]);
-        if (null == source || null == target) {
-            io.logf("Could not add saved dependency: %s -> %s\tsource project=%s\ttarget project=%s", parts[0], parts[1], source, target);
+        for (int i = 0; i < saved.names.size(); i++) {
+            BndProject source = nameIndex.get(saved.names.get(i));
+            if (null == source || !source.fingerprint.equals(saved.fingerprints.get(i))) continue;
+            for (int j: saved.deps[i]) addSavedDep(source, saved.names.get(j));
+            unanalyzed.remove(source);
+        }
+        unanalyzed.forEach(p -> io.debugf("bnd files for %s have changed since save file %s was written", p, saveFile));
+        io.logf("%d projects have bnd files changed since %s was written", unanalyzed.size(), saveFile);
+        bndQueried = unanalyzed.isEmpty();
+        // the saved closures and ranks are only valid if the graph is exactly as saved
+        // (compare project names only: the name index also holds symbolic names)
+        if (bndQueried && saved.names.equals(digraph.vertexSet().stream().map(p -> p.name).sorted().toList())) savedGraph = saved;
+    }
+
+    private void addSavedDep(BndProject source, String targetName) {
+        BndProject target = nameIndex.get(targetName);
+        if (null == target) {
+            io.logf("Could not add saved dependency: %s -> %s\ttarget project not found", source, targetName);
         } else {
             digraph.addEdge(source, target);
         }
     }
 
     public Stream<Path> findProjects(String pattern) {
-        @SuppressWarnings("resource")
-		var set = pathIndex.keySet().stream()
-                // Use Java's globbing support to match paths
-                .filter(FileSystems.getDefault().getPathMatcher("glob:" + pattern)::matches)
+        var set = getGlobIndex()
+                // only match against the names sharing the pattern's literal prefix
+                .match(pattern, getMatcher(pattern))
                 // find all the projects indexed by each matching path
                 .map(pathIndex::get)
                 // create a single stream from all the found collections
@@ -190,8 +415,47 @@ public class BndCatalog {
         return set.stream();
     }
 
+    private GlobIndex getGlobIndex() {
+        var result = globIndex;
+        if (null == result) globIndex = result = new GlobIndex(pathIndex.keySet());
+        return result;
+    }
+
+    @SuppressWarnings("resource")
+    private PathMatcher getMatcher(String pattern) {
+        // Use Java's globbing support to match paths
+        return matchers.computeIfAbsent(pattern, p -> FileSystems.getDefault().getPathMatcher("glob:" + p));
+    }
+
     public Stream<Path> findProjects(Stream<String> patterns) {
-        return patterns.flatMap(this::findProjects);
+        return findProjectsByPattern(patterns.toList()).values().stream().flatMap(Set::stream).distinct();
+    }
+
+    /**
+     * Match several patterns at once, with a single pass over the indexed names.
+     * @return the projects matching each pattern, keyed by pattern in the order supplied
+     */
+    public Map<String, Set<Path>> findProjectsByPattern(List<String> patterns) {
+        var results = new LinkedHashMap<String, Set<Path>>();
+        // a single pattern is better served by the glob index
+        if (patterns.size() == 1) {
+            var pattern = patterns.get(0);
+            results.put(pattern, findProjects(pattern).collect(toCollection(TreeSet::new)));
+            return results;
+        }
+        var distinctPatterns = patterns.stream().distinct().toList();
+        distinctPatterns.forEach(pattern -> results.put(pattern, new TreeSet<>()));
+        var automaton = new GlobAutomaton(distinctPatterns, OS.is(WINDOWS));
+        for (Path key: pathIndex.keySet()) {
+            var matches = automaton.match(key.toString());
+            if (matches.isEmpty()) continue;
+            var roots = pathIndex.get(key).stream().map(p -> p.root).toList();
+            matches.stream().mapToObj(distinctPatterns::get).map(results::get).forEach(set -> set.addAll(roots));
+        }
+        results.forEach((pattern, set) -> {
+            if (set.isEmpty()) io.warn("No project found matching pattern \"" + pattern + '"');
+        });
+        return results;
     }
 
     private BndProject find(String name) {
@@ -201,13 +465,11 @@ public class BndCatalog {
     }
 
     public Set<Path> getLeavesOfSubset(Collection<Path> subset, int max) {
-        analyzeDependenciesUsingBnd();
+        var graph = getGraph();
         assert max > 0;
-        var nodes = asNames(subset).map(this::find).collect(toUnmodifiableSet());
-        var subGraph = new AsSubgraph<>(digraph, nodes);
-        var leaves = subGraph.vertexSet().stream()
-                .filter(p -> subGraph.outgoingEdgesOf(p).size() == 0)
-                .map(p -> p.root)
+        var nodes = toIds(graph, asNames(subset));
+        var leaves = graph.leaves(nodes).stream()
+                .mapToObj(i -> graph.projects[i].root)
                 .sorted()
                 .limit(max)
                 .collect(toCollection(TreeSet::new));
@@ -215,57 +477,130 @@ public class BndCatalog {
         return leaves;
     }
 
+    /**
+     * @return a stamp that changes whenever projects are added or removed, or their dependencies change,
+     *         so that results derived from the catalog can be cached against it
+     */
+    public String getVersion() { return getGraph().version(); }
+
+    /**
+     * @return the specified projects and all their dependencies, in topological order
+     */
     public Stream<Path> getRequiredProjectPaths(Collection<String> projectNames) {
-        analyzeDependenciesUsingBnd();
-        var deps = getProjectAndDependencySubgraph(projectNames);
-        var rDeps = new EdgeReversedGraph<>(deps);
-        var topo = new TopologicalOrderIterator<>(rDeps, comparing(p -> p.name));
-        return stream(topo).map(p -> p.root);
+        var graph = getGraph();
+        var deps = graph.allDependencies(toIds(graph, projectNames.stream()));
+        return toPaths(graph, graph.topologicalOrder(deps));
+    }
+
+    /**
+     * @return the specified projects and all their dependencies, direct or indirect, in name order
+     */
+    public Stream<Path> getAllDependencyPaths(Collection<String> projectNames) {
+        var graph = getGraph();
+        return toPaths(graph, graph.allDependencies(toIds(graph, projectNames.stream())));
     }
 
     public Stream<Path> inTopologicalOrder(Stream<Path> paths) {
-        analyzeDependenciesUsingBnd();
-        var projects = paths.map(ProjectPaths::toName).map(nameIndex::get).collect(toSet());
-        var subGraph = new EdgeReversedGraph<>(new AsSubgraph<>(digraph, projects));
-        var topo = new TopologicalOrderIterator<>(subGraph, comparing(p -> p.name));
-        return stream(topo).map(p -> p.root);
+        var graph = getGraph();
+        var projects = toIds(graph, paths.map(ProjectPaths::toName));
+        return toPaths(graph, graph.topologicalOrder(projects));
+    }
+
+    /**
+     * Group the projects into waves, so that each project comes in a later wave than any of its dependencies in the collection.
+     * Each wave is as early as possible, so there are as few waves as the longest dependency chain allows.
+     * @return the projects in each wave, in name order
+     */
+    public List<Set<Path>> getImportWaves(Collection<Path> projects) {
+        var graph = getGraph();
+        var ids = toIds(graph, asNames(projects));
+        int[] levels = graph.levels(ids);
+        var waves = new ArrayList<Set<Path>>();
+        ids.stream().forEach(i -> {
+            while (waves.size() <= levels[i]) waves.add(new TreeSet<>());
+            waves.get(levels[i]).add(graph.projects[i].root);
+        });
+        return waves;
     }
 
     public Stream<Path> getDependentProjectPaths(Collection<String> projectNames) {
-        analyzeDependenciesUsingBnd();
-        return projectNames.stream()
-                .map(this::find)
-                .map(digraph::incomingEdgesOf)
-                .flatMap(Set::stream)
-                .map(digraph::getEdgeSource)
-                .map(p -> p.root)
-                .distinct();
+        var graph = getGraph();
+        var users = new BitSet(graph.size());
+        toIds(graph, projectNames.stream()).stream().flatMap(graph::users).forEach(users::set);
+        return toPaths(graph, users);
+    }
+
+    /**
+     * @return the specified projects and their users, up to <code>depth</code> steps removed, in name order
+     */
+    public Stream<Path> getDependentProjectPaths(Collection<String> projectNames, int depth) {
+        var graph = getGraph();
+        return toPaths(graph, graph.usersWithin(toIds(graph, projectNames.stream()), depth));
+    }
+
+    /**
+     * @return the specified projects and all their users, direct or indirect, in name order
+     */
+    public Stream<Path> getAllDependentProjectPaths(Collection<String> projectNames) {
+        var graph = getGraph();
+        return toPaths(graph, graph.allUsers(toIds(graph, projectNames.stream())));
     }
 
-    Graph<BndProject, ?> getProjectAndDependencySubgraph(Collection<String> projectNames) {
+    /**
+     * Find the dependency cycles, i.e. each set of projects that all depend on each other, directly or indirectly.
+     * @return for each cycle, the dependencies between its projects, and where each dependency came from
+     */
+    public List<List<String>> getDependencyCycles() {
+        var graph = getGraph();
+        return graph.cycles().stream()
+                .map(members -> IntStream.of(members)
+                        .boxed()
+                        .flatMap(i -> graph.deps(i)
+                                .filter(j -> graph.components()[j] == graph.components()[i])
+                                .mapToObj(j -> describeDependency(graph.projects[i], graph.projects[j])))
+                        .toList())
+                .toList();
+    }
+
+    private String describeDependency(BndProject p, BndProject q) {
+        final String origin;
+        if (p.initialDeps.contains(q.name) || p.initialDeps.contains(q.symbolicName)) origin = "-buildpath/-testpath in bnd files";
+        else if (q.name.equals("cnf")) origin = "every project depends on cnf";
+        else if (q.name.equals("build.image")) origin = "every bundle depends on build.image";
+        else origin = "bnd analysis";
+        return "%s -> %s (%s)".formatted(p, q, origin);
+    }
+
+    /**
+     * Get the read-only form of the graph, including the dependencies from bnd, rebuilding it if the graph has changed.
+     */
+    DependencyGraph getGraph() {
         analyzeDependenciesUsingBnd();
-        // collect the named projects to start with
-        var projects = projectNames.stream()
-                .map(this::find)
-                .filter(Objects::nonNull)
-                .collect(toUnmodifiableSet());
-        var results = new HashSet<BndProject>();
-        // collect all known dependencies, breadth-first
-        while (!projects.isEmpty()) {
-            results.addAll(projects);
-            projects = projects.stream()
-                    .map(digraph::outgoingEdgesOf)
-                    .flatMap(Set::stream)
-                    .map(digraph::getEdgeTarget)
-                    .filter(not(results::contains))
-                    .collect(toUnmodifiableSet());
+        var result = graph;
+        if (null == result) {
+            synchronized (this) {
+                if (null == graph) graph = null == savedGraph
+                        ? new DependencyGraph(digraph)
+                        : new DependencyGraph(digraph, savedGraph);
+                savedGraph = null;
+                result = graph;
+            }
         }
-        return new AsSubgraph<>(digraph, results);
+        return result;
+    }
+
+    private BitSet toIds(DependencyGraph graph, Stream<String> projectNames) {
+        var ids = new BitSet(graph.size());
+        projectNames.map(this::find).mapToInt(graph::id).forEach(ids::set);
+        return ids;
+    }
+
+    private static Stream<Path> toPaths(DependencyGraph graph, int[] ids) {
+        return IntStream.of(ids).mapToObj(i -> graph.projects[i].root);
     }
 
-    private static <T> Stream<T> stream(Iterator<T> iterator) {
-        var spl = Spliterators.spliteratorUnknownSize(iterator, ORDERED);
-        return StreamSupport.stream(spl, false);
+    private static Stream<Path> toPaths(DependencyGraph graph, BitSet ids) {
+        return ids.stream().mapToObj(i -> graph.projects[i].root);
     }
 
     public String getProjectDetails(Path path) {
@@ -39,6 +39,8 @@ final class BndProject {
     final String symbolicName;
     final List<String> initialDeps;
     final FileTime timestamp;
+    /** Identifies the state of the bnd files, so changes can be detected without parsing them */
+    final String fingerprint;
     final boolean isNoBundle;
     final boolean publishWlpJarDisabled;
 
@@ -59,6 +61,25 @@ final class BndProject {
         this.publishWlpJarDisabled = "true".equals(props.getProperty("publish.wlp.jar.disabled"));
         this.initialDeps = unmodifiableList(deps);
         this.timestamp = IO.getLastModified(root.resolve("bnd.bnd"));
+        this.fingerprint = fingerprint(root);
+    }
+
+    /** Re-create a previously parsed project */
+    BndProject(Path root, String symbolicName, List<String> initialDeps, FileTime timestamp, String fingerprint, boolean isNoBundle, boolean publishWlpJarDisabled) {
+        this.root = root;
+        this.name = root.getFileName().toString();
+        this.symbolicName = symbolicName;
+        this.initialDeps = unmodifiableList(initialDeps);
+        this.timestamp = timestamp;
+        this.fingerprint = fingerprint;
+        this.isNoBundle = isNoBundle;
+        this.publishWlpJarDisabled = publishWlpJarDisabled;
+    }
+
+    static String fingerprint(Path root) {
+        return "%d:%d".formatted(
+                IO.getLastModified(root.resolve("bnd.bnd")).toMillis(),
+                IO.getLastModified(root.resolve("bnd.overrides")).toMillis());
     }
 
     private static Properties getBndProps(Path root) {
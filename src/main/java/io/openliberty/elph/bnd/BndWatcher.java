@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps a long-lived catalog up to date as bnd files are edited, or as projects come and go (e.g. when switching branches).
+ * Only the affected projects are refreshed.
+ */
+public final class BndWatcher implements Runnable, Closeable {
+    private static final Set<String> BND_FILES = Set.of("bnd.bnd", "bnd.overrides");
+    private final BndCatalog catalog;
+    private final IO io;
+    private final WatchService watchService;
+
+    public BndWatcher(BndCatalog catalog, IO io) throws IOException {
+        this.catalog = catalog;
+        this.io = io;
+        this.watchService = catalog.root.getFileSystem().newWatchService();
+        // watch the workspace for projects being added or removed
+        catalog.root.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+        // watch each project for changes to its bnd files
+        synchronized (catalog) {
+            for (BndProject p: catalog.digraph.vertexSet()) watch(p.root);
+        }
+    }
+
+    private void watch(Path dir) throws IOException {
+        dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (;;) {
+                // wait for the first change, then gather up any others that are already pending
+                var dirs = new TreeSet<Path>();
+                for (var key = watchService.take(); null != key; key = watchService.poll()) collectChanges(key, dirs);
+                dirs.forEach(catalog::refreshProject);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            io.logf("Stopped watching %s", catalog.root);
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> dirs) {
+        var dir = (Path) key.watchable();
+        for (var event: key.pollEvents()) {
+            if (OVERFLOW == event.kind()) {
+                io.warn("Too many changes to track in " + dir + " - restart the daemon to re-read all bnd files");
+                continue;
+            }
+            var name = (Path) event.context();
+            if (dir.equals(catalog.root)) {
+                var projectDir = dir.resolve(name);
+                if (ENTRY_CREATE == event.kind() && Files.isDirectory(projectDir)) {
+                    try {
+                        watch(projectDir);
+                    } catch (IOException e) {
+                        io.warn("Could not watch new directory " + projectDir, e);
+                    }
+                }
+                dirs.add(projectDir);
+            } else if (BND_FILES.contains(name.toString())) {
+                io.debugf("%s: %s", event.kind(), dir.resolve(name));
+                dirs.add(dir);
+            }
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() throws IOException { watchService.close(); }
+}
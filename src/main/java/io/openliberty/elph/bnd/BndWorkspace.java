@@ -23,6 +23,12 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 public class BndWorkspace {
+    static {
+        // bnd keeps these settings in static fields, so set them just once, before any workspace is created
+        Workspace.setDriver(Constants.BNDDRIVER_ECLIPSE); // TODO: what should this be?
+        Workspace.addGestalt(Constants.GESTALT_BATCH, null);
+    }
+
     private final IO io;
     private final Function<Project, BndProject> lookup;
     private final Workspace workspace;
@@ -33,8 +39,6 @@ public class BndWorkspace {
         this.lookup = getName.andThen(lookup);
         File rootDir = root.toFile();
         /* Initialize the Bnd workspace */
-        Workspace.setDriver(Constants.BNDDRIVER_ECLIPSE); // TODO: what should this be?
-        Workspace.addGestalt(Constants.GESTALT_BATCH, null);
         try {
             workspace = new Workspace(rootDir, Workspace.CNFDIR);
             workspace.setOffline(true);
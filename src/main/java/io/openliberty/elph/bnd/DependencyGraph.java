@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import org.jgrapht.Graph;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingInt;
+
+/**
+ * A read-only snapshot of the dependency graph in compressed sparse row form.
+ * Each project is identified by its index in name order,
+ * so ordering by id is the same as ordering by name.
+ * The dependencies of project <code>i</code> are <code>deps[depStart[i]]</code> to <code>deps[depStart[i+1] - 1]</code>,
+ * and the users are stored the same way.
+ * <p>
+ * The transitive closures of the dependencies and users of every project are held as bitsets,
+ * so that the full set of dependencies (or users) of any set of projects is just the union of their rows.
+ * <p>
+ * Every project also has a global topological rank, taking projects in name order where there is a choice.
+ * Sorting any subset by rank puts it in topological order, since a project always ranks after its dependencies.
+ * Dependency cycles do not prevent this: each strongly connected component is ranked as a unit,
+ * after every component it depends on.
+ * <p>
+ * The closures, components and ranks are computed on first use unless they were supplied from a save file.
+ * The user closures are never saved: they are the transpose of the dependency closures, and are derived from them on first use.
+ */
+final class DependencyGraph {
+    final BndProject[] projects;
+    private final Map<BndProject, Integer> ids = new IdentityHashMap<>();
+    private final int[] depStart;
+    private final int[] deps;
+    private final int[] userStart;
+    private final int[] users;
+    private BitSet[] depClosures;
+    private BitSet[] userClosures;
+    /** The strongly connected component of each project, numbered in topological order */
+    private int[] components;
+    private int[] ranks;
+    /** The inverse of ranks */
+    private int[] byRank;
+    private String version;
+
+    <E> DependencyGraph(Graph<BndProject, E> digraph) {
+        this.projects = digraph.vertexSet().stream().sorted(comparing(p -> p.name)).toArray(BndProject[]::new);
+        for (int i = 0; i < projects.length; i++) ids.put(projects[i], i);
+        int n = projects.length;
+        this.depStart = new int[n + 1];
+        this.userStart = new int[n + 1];
+        int[][] adjacency = new int[n][];
+        for (int i = 0; i < n; i++) {
+            adjacency[i] = digraph.outgoingEdgesOf(projects[i]).stream()
+                    .map(digraph::getEdgeTarget)
+                    .mapToInt(ids::get)
+                    .sorted()
+                    .toArray();
+            depStart[i + 1] = depStart[i] + adjacency[i].length;
+            for (int j: adjacency[i]) userStart[j + 1]++;
+        }
+        for (int i = 0; i < n; i++) userStart[i + 1] += userStart[i];
+        this.deps = new int[depStart[n]];
+        this.users = new int[depStart[n]];
+        int[] userFill = userStart.clone();
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(adjacency[i], 0, deps, depStart[i], adjacency[i].length);
+            // i is visited in ascending order, so each user list is also sorted
+            for (int j: adjacency[i]) users[userFill[j]++] = i;
+        }
+    }
+
+    /**
+     * Use the closures and ranks from a save file, which must have been written for the same projects and dependencies.
+     */
+    <E> DependencyGraph(Graph<BndProject, E> digraph, DepsFile saved) {
+        this(digraph);
+        assert saved.names.size() == size();
+        this.depClosures = saved.depClosures;
+        setCondensation(saved.components, saved.ranks);
+    }
+
+    int size() { return projects.length; }
+
+    int id(BndProject p) { return ids.get(p); }
+
+    IntStream deps(int i) { return IntStream.range(depStart[i], depStart[i + 1]).map(k -> deps[k]); }
+
+    IntStream users(int i) { return IntStream.range(userStart[i], userStart[i + 1]).map(k -> users[k]); }
+
+    /**
+     * @return the specified projects and everything they depend on, directly or indirectly
+     */
+    BitSet allDependencies(BitSet start) { return union(start, depClosures()); }
+
+    /**
+     * @return the specified projects and everything that depends on them, directly or indirectly
+     */
+    BitSet allUsers(BitSet start) { return union(start, userClosures()); }
+
+    /**
+     * Walk the reverse adjacency one level at a time, stopping early if no new users are found.
+     * @return the specified projects and everything that depends on them, up to <code>depth</code> steps away
+     */
+    BitSet usersWithin(BitSet start, int depth) {
+        // no path without repeats can be longer than the number of projects
+        if (depth >= size()) return allUsers(start);
+        var result = (BitSet) start.clone();
+        var frontier = start;
+        for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+            var next = new BitSet(size());
+            for (int i = frontier.nextSetBit(0); i >= 0; i = frontier.nextSetBit(i + 1)) {
+                for (int k = userStart[i]; k < userStart[i + 1]; k++) if (!result.get(users[k])) next.set(users[k]);
+            }
+            result.or(next);
+            frontier = next;
+        }
+        return result;
+    }
+
+    private static BitSet union(BitSet start, BitSet[] rows) {
+        var result = new BitSet(rows.length);
+        start.stream().forEach(i -> result.or(rows[i]));
+        return result;
+    }
+
+    /**
+     * @return a digest of every project's name, symbolic name, location and dependencies,
+     *         which changes whenever anything that affects finding projects or following dependencies changes
+     */
+    synchronized String version() {
+        if (null == version) {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            var buf = ByteBuffer.allocate(Integer.BYTES);
+            for (int i = 0; i < size(); i++) {
+                var p = projects[i];
+                digest.update((p.name + '\0' + p.symbolicName + '\0' + p.root + '\0').getBytes(UTF_8));
+                deps(i).forEach(j -> digest.update(buf.clear().putInt(j).array()));
+                digest.update((byte) '\n');
+            }
+            version = HexFormat.of().formatHex(digest.digest());
+        }
+        return version;
+    }
+
+    synchronized BitSet[] depClosures() {
+        if (null == depClosures) computeClosures();
+        return depClosures;
+    }
+
+    synchronized BitSet[] userClosures() {
+        if (null == userClosures) transposeClosures();
+        return userClosures;
+    }
+
+    synchronized int[] ranks() {
+        if (null == ranks) condense();
+        return ranks;
+    }
+
+    synchronized int[] components() {
+        if (null == components) condense();
+        return components;
+    }
+
+    /**
+     * @return the projects in each dependency cycle, i.e. each strongly connected component of more than one project
+     */
+    List<int[]> cycles() {
+        var components = components();
+        var result = new ArrayList<int[]>();
+        // the members of each component have consecutive ranks
+        for (int r = 0; r < size(); ) {
+            int start = r, c = components[byRank[r]];
+            while (r < size() && components[byRank[r]] == c) r++;
+            if (r - start > 1) result.add(IntStream.range(start, r).map(k -> byRank[k]).sorted().toArray());
+        }
+        return result;
+    }
+
+    /**
+     * Find the strongly connected components, then rank the projects using a topological sort of the condensed graph.
+     * The components are numbered in that order, and the projects within a component take consecutive ranks in name order.
+     * Where there is a choice, components are taken in order of their first project's name.
+     */
+    private void condense() {
+        int n = size();
+        int[] scc = stronglyConnectedComponents();
+        int count = IntStream.of(scc).max().orElse(-1) + 1;
+        // list the members of each component in name order
+        int[] memberStart = new int[count + 1];
+        for (int c: scc) memberStart[c + 1]++;
+        for (int c = 0; c < count; c++) memberStart[c + 1] += memberStart[c];
+        int[] members = new int[n];
+        int[] memberFill = memberStart.clone();
+        for (int i = 0; i < n; i++) members[memberFill[scc[i]]++] = i;
+        // Kahn's algorithm over the condensed graph, counting each dependency between components separately
+        int[] pending = new int[count];
+        for (int i = 0; i < n; i++) {
+            for (int k = depStart[i]; k < depStart[i + 1]; k++) if (scc[deps[k]] != scc[i]) pending[scc[i]]++;
+        }
+        var ready = new PriorityQueue<Integer>(comparingInt(c -> members[memberStart[c]]));
+        for (int c = 0; c < count; c++) if (pending[c] == 0) ready.add(c);
+        int[] newComponents = new int[n];
+        int[] newRanks = new int[n];
+        int rank = 0;
+        for (int ordinal = 0; !ready.isEmpty(); ordinal++) {
+            int c = ready.poll();
+            for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                newComponents[members[m]] = ordinal;
+                newRanks[members[m]] = rank++;
+            }
+            for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                int i = members[m];
+                for (int k = userStart[i]; k < userStart[i + 1]; k++) {
+                    int d = scc[users[k]];
+                    if (d != c && --pending[d] == 0) ready.add(d);
+                }
+            }
+        }
+        assert rank == n : "the condensed graph cannot contain a cycle";
+        setCondensation(newComponents, newRanks);
+    }
+
+    /**
+     * Tarjan's algorithm, using explicit stacks rather than recursion, since the dependency chains can be long.
+     * @return the component of each project
+     */
+    private int[] stronglyConnectedComponents() {
+        int n = size();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        // the projects visited but not yet assigned to a component
+        int[] visited = new int[n];
+        int visitedTop = 0;
+        // the path of the depth-first search, with the next dependency to explore from each project
+        int[] path = new int[n];
+        int[] nextDep = new int[n];
+        int pathTop = 0;
+        int counter = 0, count = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            index[root] = low[root] = counter++;
+            visited[visitedTop++] = root;
+            nextDep[root] = depStart[root];
+            path[pathTop++] = root;
+            while (pathTop > 0) {
+                int i = path[pathTop - 1];
+                if (nextDep[i] < depStart[i + 1]) {
+                    int j = deps[nextDep[i]++];
+                    if (index[j] < 0) {
+                        index[j] = low[j] = counter++;
+                        visited[visitedTop++] = j;
+                        nextDep[j] = depStart[j];
+                        path[pathTop++] = j;
+                    } else if (component[j] < 0) {
+                        low[i] = Math.min(low[i], index[j]);
+                    }
+                    continue;
+                }
+                pathTop--;
+                if (pathTop > 0) low[path[pathTop - 1]] = Math.min(low[path[pathTop - 1]], low[i]);
+                if (low[i] != index[i]) continue;
+                // i is the root of a component: everything visited since i belongs to it
+                int j;
+                do {
+                    j = visited[--visitedTop];
+                    component[j] = count;
+                } while (j != i);
+                count++;
+            }
+        }
+        return component;
+    }
+
+    private void setCondensation(int[] components, int[] ranks) {
+        this.components = components;
+        this.ranks = ranks;
+        this.byRank = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++) byRank[ranks[i]] = i;
+    }
+
+    private void computeClosures() {
+        int n = size();
+        var components = components();
+        depClosures = new BitSet[n];
+        // visit each component in turn, in rank order, so that the closures of its dependencies are already complete
+        for (int r = 0; r < n; ) {
+            int start = r, c = components[byRank[r]];
+            var row = new BitSet(n);
+            for (; r < n && components[byRank[r]] == c; r++) row.set(byRank[r]);
+            for (int k = start; k < r; k++) deps(byRank[k]).filter(j -> components[j] != c).forEach(j -> row.or(depClosures[j]));
+            // every project in a component has the same closure
+            for (int k = start; k < r; k++) depClosures[byRank[k]] = row;
+        }
+    }
+
+    /** The user closures are the transpose of the dependency closures */
+    private void transposeClosures() {
+        int n = size();
+        var depClosures = depClosures();
+        userClosures = new BitSet[n];
+        for (int i = 0; i < n; i++) userClosures[i] = new BitSet(n);
+        for (int i = 0; i < n; i++) {
+            final int user = i;
+            depClosures[i].stream().forEach(j -> userClosures[j].set(user));
+        }
+    }
+
+    /**
+     * @return the projects in the subset that do not depend on any other project in the subset
+     */
+    BitSet leaves(BitSet subset) {
+        var result = new BitSet();
+        subset.stream()
+                .filter(i -> deps(i).noneMatch(subset::get))
+                .forEach(result::set);
+        return result;
+    }
+
+    /**
+     * Assign each project in the subset to a level: the length of the longest chain of its dependencies within the subset.
+     * Chains may pass through projects outside the subset, so a project is never on the same level as anything it depends on,
+     * except within a dependency cycle, which is kept on one level.
+     * @return the level of each project, indexed by id, with zero for any project not in the subset
+     */
+    int[] levels(BitSet subset) {
+        int[] levels = new int[size()];
+        var components = components();
+        var closures = depClosures();
+        // visit in topological order, so the levels of each project's dependencies are already known
+        for (int i: topologicalOrder(subset)) {
+            var below = (BitSet) closures[i].clone();
+            below.and(subset);
+            int level = 0;
+            for (int j = below.nextSetBit(0); j >= 0; j = below.nextSetBit(j + 1)) {
+                if (components[j] != components[i]) level = Math.max(level, levels[j] + 1);
+            }
+            levels[i] = level;
+        }
+        return levels;
+    }
+
+    /**
+     * Order a subset so that every project comes after the projects it depends on.
+     * Projects in a dependency cycle are kept together, in name order.
+     */
+    int[] topologicalOrder(BitSet subset) {
+        var ranks = ranks();
+        // sort by rank: the ranks are below the number of projects, so a bitset sorts them
+        var subsetRanks = new BitSet(size());
+        subset.stream().map(i -> ranks[i]).forEach(subsetRanks::set);
+        return subsetRanks.stream().map(r -> byRank[r]).toArray();
+    }
+}
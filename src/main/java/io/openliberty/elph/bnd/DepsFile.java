@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+import static io.openliberty.elph.bnd.SaveFiles.getBits;
+import static io.openliberty.elph.bnd.SaveFiles.getInts;
+import static io.openliberty.elph.bnd.SaveFiles.getString;
+import static io.openliberty.elph.bnd.SaveFiles.putBits;
+import static io.openliberty.elph.bnd.SaveFiles.putInts;
+import static io.openliberty.elph.bnd.SaveFiles.putString;
+
+/**
+ * The binary form of the dependency save file.
+ * It holds a table of project names and fingerprints,
+ * followed by the dependencies of each project as indices into that table,
+ * and then the transitive closure of the dependencies of each project as bitsets of those indices.
+ * The closures of the users are not stored, since they are just the transpose, and cheap to rebuild when needed.
+ * Finally, the condensed graph is stored as the strongly connected component of each project, and the topological rank of each project.
+ * <pre>
+ *     int magic, int version,
+ *     int projectCount, projectCount * (string name, string fingerprint),
+ *     projectCount * (int depCount, depCount * int index),
+ *     projectCount * (int wordCount, wordCount * long word),
+ *     int projectCount, projectCount * int component,
+ *     int projectCount, projectCount * int rank
+ * </pre>
+ */
+final class DepsFile {
+    private static final int VERSION = 5;
+
+    final List<String> names;
+    final List<String> fingerprints;
+    final int[][] deps;
+    final BitSet[] depClosures;
+    final int[] components;
+    final int[] ranks;
+
+    DepsFile(List<String> names, List<String> fingerprints, int[][] deps, BitSet[] depClosures, int[] components, int[] ranks) {
+        assert names.size() == fingerprints.size();
+        assert names.size() == deps.length;
+        assert names.size() == depClosures.length;
+        assert names.size() == components.length;
+        assert names.size() == ranks.length;
+        this.names = names;
+        this.fingerprints = fingerprints;
+        this.deps = deps;
+        this.depClosures = depClosures;
+        this.components = components;
+        this.ranks = ranks;
+    }
+
+    /**
+     * @return the contents of the file, or nothing if it is not a dependency file of the current version
+     */
+    static Optional<DepsFile> read(Path file) throws IOException {
+        var buf = SaveFiles.open(file, VERSION);
+        if (null == buf) return Optional.empty();
+        int count = buf.getInt();
+        var names = new ArrayList<String>(count);
+        var fingerprints = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(getString(buf));
+            fingerprints.add(getString(buf));
+        }
+        int[][] deps = new int[count][];
+        for (int i = 0; i < count; i++) deps[i] = getInts(buf);
+        var depClosures = new BitSet[count];
+        for (int i = 0; i < count; i++) depClosures[i] = getBits(buf);
+        int[] components = getInts(buf);
+        int[] ranks = getInts(buf);
+        return Optional.of(new DepsFile(names, fingerprints, deps, depClosures, components, ranks));
+    }
+
+    byte[] toBytes() {
+        return SaveFiles.toBytes(VERSION, out -> {
+            out.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                putString(out, names.get(i));
+                putString(out, fingerprints.get(i));
+            }
+            for (int[] targets: deps) putInts(out, targets);
+            for (BitSet bits: depClosures) putBits(out, bits);
+            putInts(out, components);
+            putInts(out, ranks);
+        });
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Several glob patterns compiled into a single non-deterministic automaton,
+ * so that a name can be tested against all of them in one pass over its characters.
+ * <p>
+ * The glob syntax is the same as for {@link java.nio.file.FileSystem#getPathMatcher(String)}:
+ * <code>*</code>, <code>**</code>, <code>?</code>, <code>[...]</code> (including <code>[!...]</code> and ranges),
+ * <code>{a,b}</code> and <code>\</code> escapes.
+ * <p>
+ * Each pattern is expanded into one alternative per combination of its <code>{...}</code> choices.
+ * Each alternative is a sequence of steps, and each step is a state of the automaton.
+ * All the alternatives are laid end to end, each followed by an accepting state.
+ */
+final class GlobAutomaton {
+    /** Matches any number of characters, instead of exactly one */
+    private final BitSet repeating = new BitSet();
+    /** Indexed by state: what each step matches, or null for an accepting state */
+    private final List<IntPredicate> steps = new ArrayList<>();
+    /** Indexed by state: the pattern each state belongs to */
+    private final List<Integer> owners = new ArrayList<>();
+    private final BitSet initial = new BitSet();
+    private final BitSet accepting = new BitSet();
+    private final boolean ignoreCase;
+
+    GlobAutomaton(List<String> patterns, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        for (int i = 0; i < patterns.size(); i++) {
+            for (String alternative: expandGroups(patterns.get(i))) {
+                int start = steps.size();
+                compile(alternative, patterns.get(i), i);
+                steps.add(null);
+                owners.add(i);
+                accepting.set(steps.size() - 1);
+                addWithClosure(initial, start);
+            }
+        }
+    }
+
+    /**
+     * @return the indices of the patterns that match the name
+     */
+    BitSet match(String name) {
+        var current = (BitSet) initial.clone();
+        var next = new BitSet(steps.size());
+        for (int i = 0; i < name.length() && !current.isEmpty(); i++) {
+            int c = fold(name.charAt(i));
+            next.clear();
+            for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+                var step = steps.get(s);
+                if (null == step || !step.test(c)) continue;
+                if (repeating.get(s)) next.set(s);
+                addWithClosure(next, s + 1);
+            }
+            var tmp = current;
+            current = next;
+            next = tmp;
+        }
+        current.and(accepting);
+        var result = new BitSet();
+        current.stream().map(owners::get).forEach(result::set);
+        return result;
+    }
+
+    /** Add a state, and every state after it that can be reached by matching no characters */
+    private void addWithClosure(BitSet states, int state) {
+        states.set(state);
+        while (repeating.get(state)) states.set(++state);
+    }
+
+    private int fold(char c) {
+        return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    private void addStep(IntPredicate step, boolean repeats, int owner) {
+        if (repeats) repeating.set(steps.size());
+        steps.add(step);
+        owners.add(owner);
+    }
+
+    private void compile(String glob, String pattern, int owner) {
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    boolean crossesDirs = i + 1 < glob.length() && glob.charAt(i + 1) == '*';
+                    if (crossesDirs) i++;
+                    addStep(crossesDirs ? ch -> true : ch -> ch != '/', true, owner);
+                }
+                case '?' -> addStep(ch -> ch != '/', false, owner);
+                case '[' -> i = compileBracket(glob, i + 1, pattern, owner);
+                case '\\' -> {
+                    if (++i == glob.length()) throw new PatternSyntaxException("No character to escape", pattern, pattern.length() - 1);
+                    addLiteral(glob.charAt(i), owner);
+                }
+                default -> addLiteral(c, owner);
+            }
+        }
+    }
+
+    private void addLiteral(char c, int owner) {
+        int expected = fold(c);
+        addStep(ch -> ch == expected, false, owner);
+    }
+
+    /**
+     * @return the index of the closing bracket
+     */
+    private int compileBracket(String glob, int i, String pattern, int owner) {
+        boolean negated = i < glob.length() && glob.charAt(i) == '!';
+        if (negated) i++;
+        var chars = new BitSet();
+        var ranges = new ArrayList<int[]>();
+        while (true) {
+            if (i >= glob.length()) throw new PatternSyntaxException("Missing ']'", pattern, pattern.length() - 1);
+            char c = glob.charAt(i);
+            if (c == ']') break;
+            if (c == '/') throw new PatternSyntaxException("Explicit 'name separator' in class", pattern, pattern.indexOf('/'));
+            if (i + 2 < glob.length() && glob.charAt(i + 1) == '-' && glob.charAt(i + 2) != ']') {
+                char last = glob.charAt(i + 2);
+                if (last < c) throw new PatternSyntaxException("Invalid range", pattern, pattern.indexOf(c));
+                ranges.add(new int[]{c, last});
+                i += 3;
+            } else {
+                chars.set(fold(c));
+                i++;
+            }
+        }
+        IntPredicate inSet = ch -> chars.get(ch) || ranges.stream().anyMatch(r -> inRange(ch, r));
+        addStep(negated ? ch -> ch != '/' && !inSet.test(ch) : inSet, false, owner);
+        return i;
+    }
+
+    private boolean inRange(int ch, int[] range) {
+        if (ch >= range[0] && ch <= range[1]) return true;
+        if (!ignoreCase) return false;
+        // the character has been folded, so also check its other cases
+        return Character.toUpperCase(ch) >= range[0] && Character.toUpperCase(ch) <= range[1];
+    }
+
+    /**
+     * Expand the <code>{a,b}</code> groups, which cannot be nested, into separate alternatives.
+     * As in the JDK, an escaped character or a bracket expression is copied whole,
+     * so that a <code>\,</code>, <code>\}</code> or a comma in brackets never splits a group.
+     */
+    private static List<String> expandGroups(String pattern) {
+        var results = new ArrayList<String>();
+        results.add("");
+        // the choices of the group being read, if any
+        List<StringBuilder> choices = null;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '{') {
+                if (null != choices) throw new PatternSyntaxException("Cannot nest groups", pattern, i);
+                choices = new ArrayList<>(List.of(new StringBuilder()));
+                continue;
+            }
+            if (null != choices && c == ',') {
+                choices.add(new StringBuilder());
+                continue;
+            }
+            if (null != choices && c == '}') {
+                var expanded = new ArrayList<String>();
+                for (String prefix: results) for (var choice: choices) expanded.add(prefix + choice);
+                results = expanded;
+                choices = null;
+                continue;
+            }
+            int end = switch (c) {
+                case '\\' -> Math.min(i + 2, pattern.length());
+                // the first ']' always closes the brackets, and compileBracket() reports one that is missing
+                case '[' -> {
+                    int close = pattern.indexOf(']', i + 1);
+                    yield close < 0 ? pattern.length() : close + 1;
+                }
+                default -> i + 1;
+            };
+            String token = pattern.substring(i, end);
+            if (null == choices) appendToAll(results, token);
+            else choices.get(choices.size() - 1).append(token);
+            i = end - 1;
+        }
+        if (null != choices) throw new PatternSyntaxException("Missing '}'", pattern, pattern.length() - 1);
+        return results;
+    }
+
+    private static void appendToAll(List<String> list, String s) {
+        list.replaceAll(prefix -> prefix + s);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.lang.String.CASE_INSENSITIVE_ORDER;
+
+/**
+ * A sorted array of the indexed names, so that a glob pattern with a literal prefix
+ * (e.g. <code>com.ibm.ws.*</code>) need only be matched against the names in the range sharing that prefix.
+ * <p>
+ * The names are sorted ignoring case, so that the range is a superset of the matches
+ * whether or not the platform's glob matching is case-sensitive.
+ */
+final class GlobIndex {
+    private static final String GLOB_CHARS = "*?[{\\";
+    private final Path[] paths;
+    private final String[] names;
+
+    GlobIndex(Collection<Path> paths) {
+        this.paths = paths.stream()
+                .sorted((a, b) -> CASE_INSENSITIVE_ORDER.compare(a.toString(), b.toString()))
+                .toArray(Path[]::new);
+        this.names = Stream.of(this.paths).map(Path::toString).toArray(String[]::new);
+    }
+
+    /**
+     * @return the indexed paths that match the pattern, in index order
+     */
+    Stream<Path> match(String pattern, PathMatcher matcher) {
+        String prefix = literalPrefix(pattern);
+        int start = lowerBound(prefix);
+        return IntStream.range(start, names.length)
+                .takeWhile(i -> names[i].regionMatches(true, 0, prefix, 0, prefix.length()))
+                .mapToObj(i -> paths[i])
+                .filter(matcher::matches);
+    }
+
+    static String literalPrefix(String pattern) {
+        int end = 0;
+        while (end < pattern.length() && GLOB_CHARS.indexOf(pattern.charAt(end)) < 0) end++;
+        return pattern.substring(0, end);
+    }
+
+    /** @return the index of the first name not less than the prefix */
+    private int lowerBound(String prefix) {
+        int i = Arrays.binarySearch(names, prefix, CASE_INSENSITIVE_ORDER);
+        if (i < 0) return -(i + 1);
+        // step back over any names equal to the prefix (ignoring case)
+        while (i > 0 && CASE_INSENSITIVE_ORDER.compare(names[i - 1], prefix) == 0) i--;
+        return i;
+    }
+}
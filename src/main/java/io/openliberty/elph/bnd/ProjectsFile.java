@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+
+import static io.openliberty.elph.bnd.SaveFiles.getString;
+import static io.openliberty.elph.bnd.SaveFiles.putString;
+
+/**
+ * A snapshot of every project in the bnd workspace, as parsed from the bnd files.
+ * <pre>
+ *     int magic, int version,
+ *     long workspaceTimestamp,
+ *     int projectCount, projectCount * (
+ *         string name, string symbolicName, int depCount, depCount * string dep,
+ *         long timestamp, string fingerprint, boolean isNoBundle, boolean publishWlpJarDisabled)
+ * </pre>
+ * A missing symbolic name is stored as the empty string.
+ */
+final class ProjectsFile {
+    private static final int VERSION = 1;
+
+    /** The last modified time of the bnd workspace directory when the projects were listed */
+    final long workspaceTimestamp;
+    final Collection<BndProject> projects;
+
+    ProjectsFile(long workspaceTimestamp, Collection<BndProject> projects) {
+        this.workspaceTimestamp = workspaceTimestamp;
+        this.projects = projects;
+    }
+
+    /**
+     * @return the contents of the file, or nothing if it is not a projects file of the current version
+     */
+    static Optional<ProjectsFile> read(Path file, Path bndWorkspace) throws IOException {
+        var buf = SaveFiles.open(file, VERSION);
+        if (null == buf) return Optional.empty();
+        long workspaceTimestamp = buf.getLong();
+        int count = buf.getInt();
+        var projects = new ArrayList<BndProject>(count);
+        for (int i = 0; i < count; i++) {
+            var root = bndWorkspace.resolve(getString(buf));
+            var symbolicName = getString(buf);
+            var deps = new String[buf.getInt()];
+            for (int j = 0; j < deps.length; j++) deps[j] = getString(buf);
+            var timestamp = FileTime.fromMillis(buf.getLong());
+            var fingerprint = getString(buf);
+            boolean isNoBundle = buf.get() != 0;
+            boolean publishWlpJarDisabled = buf.get() != 0;
+            // not List.of(), which would throw when asked whether it contains a missing (null) symbolic name
+            projects.add(new BndProject(root, symbolicName.isEmpty() ? null : symbolicName, Arrays.asList(deps),
+                    timestamp, fingerprint, isNoBundle, publishWlpJarDisabled));
+        }
+        return Optional.of(new ProjectsFile(workspaceTimestamp, projects));
+    }
+
+    byte[] toBytes() {
+        return SaveFiles.toBytes(VERSION, out -> {
+            out.writeLong(workspaceTimestamp);
+            out.writeInt(projects.size());
+            for (BndProject p: projects) {
+                putString(out, p.name);
+                putString(out, null == p.symbolicName ? "" : p.symbolicName);
+                out.writeInt(p.initialDeps.size());
+                for (String dep: p.initialDeps) putString(out, dep);
+                out.writeLong(p.timestamp.toMillis());
+                putString(out, p.fingerprint);
+                out.writeBoolean(p.isNoBundle);
+                out.writeBoolean(p.publishWlpJarDisabled);
+            }
+        });
+    }
+}
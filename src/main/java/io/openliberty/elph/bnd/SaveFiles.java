@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.bnd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import io.openliberty.elph.util.IO;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Helpers for the binary files in which the catalog saves its state.
+ * Each file starts with a magic number and a version.
+ * Strings are stored as an int byte count followed by UTF-8 bytes.
+ */
+enum SaveFiles {
+    ;
+    static final int MAGIC = 0x454c5048; // "ELPH"
+
+    interface Writer { void write(DataOutputStream out) throws IOException; }
+
+    /**
+     * Read the whole file onto the heap in one go.
+     * (Memory-mapping would gain nothing, since every value is copied into heap objects as it is read,
+     * and Windows will not allow a mapped file to be replaced until the mapping is garbage collected.)
+     * @return the file contents positioned after the header, or <code>null</code> if the header does not match
+     */
+    static ByteBuffer open(Path file, int version) throws IOException {
+        var buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.remaining() < 8 || buf.getInt() != MAGIC || buf.getInt() != version) return null;
+        return buf;
+    }
+
+    /**
+     * @return the modification time and size of the file, like {@link BndProject#fingerprint(Path)},
+     *         or nothing if the modification time is too recent to be sure of revealing a later change
+     */
+    static Optional<String> fingerprint(Path file) {
+        long now = System.currentTimeMillis();
+        var mtime = IO.getLastModified(file);
+        if (!IO.isSettled(mtime, now)) return Optional.empty();
+        try {
+            return Optional.of("%d:%d".formatted(mtime.toMillis(), Files.exists(file) ? Files.size(file) : -1));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    static byte[] toBytes(int version, Writer writer) {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(version);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing to a byte array", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static String getString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    static void putString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static int[] getInts(ByteBuffer buf) {
+        int[] ints = new int[buf.getInt()];
+        buf.asIntBuffer().get(ints);
+        buf.position(buf.position() + Integer.BYTES * ints.length);
+        return ints;
+    }
+
+    static void putInts(DataOutputStream out, int[] ints) throws IOException {
+        out.writeInt(ints.length);
+        for (int i: ints) out.writeInt(i);
+    }
+
+    static BitSet getBits(ByteBuffer buf) {
+        long[] words = new long[buf.getInt()];
+        buf.asLongBuffer().get(words);
+        buf.position(buf.position() + Long.BYTES * words.length);
+        return BitSet.valueOf(words);
+    }
+
+    static void putBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word: words) out.writeLong(word);
+    }
+}
@@ -17,6 +17,8 @@ import static java.util.stream.Collectors.toCollection;
 
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Stream;
@@ -32,22 +34,28 @@ abstract class AbstractCommand {
     @CommandLine.Mixin
     IO io;
 
-    Stream<String> normalize(Stream<String> patterns) {
-        return patterns.map(s -> s.replace('%', '*'));
+    /** The depth of users to include when all users are wanted, however indirect */
+    static final int ALL_USERS = Integer.MAX_VALUE;
+
+    String normalize(String pattern) {
+        return pattern.replace('%', '*');
     }
 
-    Set<Path> findProjects(Stream<String> patterns, boolean includeUsers) {
-        Set<Path> result = findProjects(patterns);
-        if (includeUsers) addUsers(result);
-        return result;
+    Stream<String> normalize(Stream<String> patterns) {
+        return patterns.map(this::normalize);
     }
 
     Set<Path> findProjects(Stream<String> patterns) {
         return elph.getCatalog().findProjects(normalize(patterns)).collect(toCollection(TreeSet::new));
     }
 
+    /** @return the projects matching each pattern, keyed by normalized pattern in the order supplied */
+    Map<String, Set<Path>> findProjectsByPattern(List<String> patterns) {
+        return elph.getCatalog().findProjectsByPattern(normalize(patterns.stream()).toList());
+    }
+
     void addDeps(Collection<Path> projects) {
-        elph.getCatalog().getRequiredProjectPaths(toNames(projects)).forEach(projects::add);
+        elph.getCatalog().getAllDependencyPaths(toNames(projects)).forEach(projects::add);
     }
 
     void addUsers(Collection<Path> projects) {
@@ -55,6 +63,15 @@ abstract class AbstractCommand {
         elph.getCatalog().getDependentProjectPaths(names).forEach(projects::add);
     }
 
+    void addUsers(Collection<Path> projects, int depth) {
+        if (depth == ALL_USERS) addAllUsers(projects);
+        else elph.getCatalog().getDependentProjectPaths(toNames(projects), depth).forEach(projects::add);
+    }
+
+    void addAllUsers(Collection<Path> projects) {
+        elph.getCatalog().getAllDependentProjectPaths(toNames(projects)).forEach(projects::add);
+    }
+
     /**
      * Removes (and returns) the projects already imported to Eclipse from the supplied collection.
      * @return the set of projects that were removed
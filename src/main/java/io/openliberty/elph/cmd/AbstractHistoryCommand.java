@@ -12,104 +12,83 @@
  */
 package io.openliberty.elph.cmd;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Files;
+import io.openliberty.elph.cmd.ImportHistory.Entry;
+
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Stream;
+import java.util.TreeSet;
 
-import static java.util.function.Predicate.not;
+import static java.util.stream.Collectors.toSet;
 
 public class AbstractHistoryCommand extends AbstractCommand {
-    private static final String HIST_FILE = "import.hist";
-    private static final String HIST_FILE_DESC = "import history file";
-    private Boolean noHistory;
+    private ImportHistory history;
 
-    boolean noImportHistory() {
-        if (null == noHistory) {
-            Path path = elph.getWorkspaceSettingsDir().resolve(AbstractHistoryCommand.HIST_FILE);
-            noHistory = ! Files.exists(path);
-        }
-        return noHistory;
+    private ImportHistory history() {
+        if (null == history) history = new ImportHistory(io, elph.getWorkspaceSettingsDir());
+        return history;
     }
 
-    void addToHistory(List<String> patterns, boolean includeUsers) {
-        rewriteHistory(Stream.concat(
-                getHistoryList().stream(),
-                patterns.stream().map(s -> includeUsers ? "--users " + s : s)));
-    }
+    boolean noImportHistory() { return !history().existed(); }
 
-    List<String> getHistoryList() {
-        Path historyFile = getHistoryFile();
-        try {
-            return Files.readAllLines(historyFile);
-        } catch (IOException e) {
-            throw io.error("Could not open the " + HIST_FILE_DESC + " for reading: " + historyFile);
-        }
+    /**
+     * Record each pattern with the number of projects it resolved to on its own, including users but not dependencies.
+     * @param matches the projects matching each pattern, keyed by normalized pattern
+     */
+    void addToHistory(Map<String, Set<Path>> matches, int usersDepth) {
+        var resolved = new LinkedHashMap<String, Integer>();
+        matches.forEach((pattern, projects) -> {
+            var found = new TreeSet<>(projects);
+            if (usersDepth > 0) addUsers(found, usersDepth);
+            resolved.put(pattern, found.size());
+        });
+        history().add(resolved, usersDepth);
     }
 
+    List<Entry> getHistoryList() { return history().entries(); }
+
+    /**
+     * Resolve the history, re-using the projects each entry resolved to last time if the catalog has not changed since.
+     */
     Set<Path> getProjectsFromHistory() {
         var imports = getHistoryList();
-        var importsWithUsers = imports.stream()
-                .filter(s -> s.startsWith("--users "))
-                .map(s -> s.substring("--users ".length()));
-        var importsWithoutUsers = imports.stream()
-                .filter(not(s -> s.startsWith("--users ")));
-        var projects = findProjects(importsWithUsers);
-        addUsers(projects);
-        projects.addAll(findProjects(importsWithoutUsers));
+        var catalog = elph.getCatalog();
+        var cache = new ResolvedHistory(io, elph.getWorkspaceSettingsDir(), catalog.getVersion());
+        var projects = new TreeSet<Path>();
+        var unresolved = new ArrayList<Entry>();
+        for (var entry: imports) {
+            cache.get(entry).ifPresentOrElse(
+                    names -> names.stream().map(elph.getBndWorkspace()::resolve).forEach(projects::add),
+                    () -> unresolved.add(entry));
+        }
+        io.debugf("Import history entries resolved from cache: %d of %d", imports.size() - unresolved.size(), imports.size());
+        if (!unresolved.isEmpty()) {
+            // match all the patterns in a single pass
+            var matches = catalog.findProjectsByPattern(unresolved.stream().map(Entry::pattern).toList());
+            // then add the users for each entry separately, so that each can be cached
+            for (var entry: unresolved) {
+                var found = new TreeSet<>(matches.get(entry.pattern()));
+                if (entry.usersDepth() > 0) addUsers(found, entry.usersDepth());
+                cache.put(entry, found);
+                projects.addAll(found);
+            }
+        }
+        cache.save(imports);
         return projects;
     }
 
     void deleteHistory() {
-        File file = getHistoryFile().toFile();
-        if (!file.exists()) {
-            io.report("No history to delete.");
-            return;
-        }
-        try {
-            io.logf("Deleting %s", file);
-            if (file.delete())
-                io.report("History deleted.");
-            else
-                io.warn("Deletion failed for file: " + file);
-        } catch (Exception e) {
-            throw io.error("Could not delete file: " + file, e);
-        }
+        if (history().delete()) io.report("History deleted.");
+        else io.report("No history to delete.");
     }
 
     boolean deleteHistory(List<String> patterns) {
-        var history = getHistoryList();
-        var changes = new ArrayList<>(history);
-
-        normalize(patterns.stream())
-                .peek(history::remove) // remove exact matches
-                .map(s -> "--users " + s).forEach(history::remove); // remove matches with "--users"
-        // compute the changes
-        changes.removeAll(history);
-        changes.forEach(h -> io.infof("Deleted: %s", h));
-        rewriteHistory(history.stream());
-        return changes.size() > 0;
-    }
-
-    private Path getHistoryFile() {
-        Path path = elph.getWorkspaceSettingsDir().resolve(AbstractHistoryCommand.HIST_FILE);
-        if (!Files.exists(path)) noHistory = true;
-        return io.verifyOrCreateFile(HIST_FILE_DESC, path);
-    }
-
-    private void rewriteHistory(Stream<String> newNarrative) {
-        // write this out to file
-        Path settingsFile = getHistoryFile();
-        try (FileWriter fw = new FileWriter(settingsFile.toFile()); PrintWriter pw = new PrintWriter(fw)) {
-            normalize(newNarrative).distinct().forEach(pw::println);
-        } catch (IOException e) {
-            throw io.error("Failed to open history for re-writing: " + settingsFile);
-        }
+        // remove matching patterns, with or without users
+        var removed = history().forget(normalize(patterns.stream()).collect(toSet()));
+        removed.forEach(e -> io.infof("Deleted: %s", e));
+        return removed.size() > 0;
     }
 }
@@ -12,18 +12,28 @@
  */
 package io.openliberty.elph.cmd;
 
+import io.openliberty.elph.eclipse.ProjectsWatcher;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.TypeConversionException;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 
+import static io.openliberty.elph.bnd.ProjectPaths.asNames;
+import static io.openliberty.elph.bnd.ProjectPaths.toNames;
 import static io.openliberty.elph.cmd.ElphCommand.TOOL_NAME;
 import static io.openliberty.elph.util.IO.Verbosity.INFO;
-import static java.util.stream.Collectors.toCollection;
+import static java.util.function.Predicate.not;
 import static picocli.CommandLine.Help.Ansi.Style.bold;
 import static picocli.CommandLine.Help.Ansi.Style.italic;
 import static picocli.CommandLine.Help.Ansi.Style.reset;
@@ -39,6 +49,37 @@ class AbstractImportCommand extends AbstractHistoryCommand {
         maxBatchSize = val;
     }
 
+    private long maxBatchCost;
+
+    @Option(names = {"-c", "--batch-cost"}, defaultValue = "5000", description = "Limit the estimated build cost of a single batch, so that each batch takes a similar time to build. "
+            + "A project costs one unit per Java source file and per KB of Java source, plus " + CostModel.PROJECT_OVERHEAD + ", "
+            + "unless earlier imports have recorded how long it takes, in which case that time is converted to the same units. Default: ${DEFAULT-VALUE}")
+    private void setMaxBatchCost(long val) {
+        if (val <= 0) throw new TypeConversionException("Cannot set batch cost lower than 1");
+        maxBatchCost = val;
+    }
+
+    private int pipelineWindow;
+
+    @Option(names = "--pipeline", paramLabel = "N", description = "Keep up to N batches in flight at once, without waiting for return to be pressed. "
+            + "Each batch starts as soon as all its dependencies are in the Eclipse workspace, even if earlier batches are still being imported.")
+    private void setPipelineWindow(int val) {
+        if (val <= 0) throw new TypeConversionException("Cannot set pipeline window lower than 1");
+        pipelineWindow = val;
+    }
+
+    @Option(names = "--auto", description = "Do not wait for return to be pressed after each batch. "
+            + "Instead, watch the Eclipse workspace and start the next batch as soon as every project in the current batch is imported.")
+    private boolean auto;
+
+    private Duration autoTimeout;
+
+    @Option(names = "--auto-timeout", paramLabel = "SECONDS", defaultValue = "600", description = "In auto or pipeline mode, how long to wait for Eclipse to import a batch. Default: ${DEFAULT-VALUE}")
+    private void setAutoTimeout(long val) {
+        if (val <= 0) throw new TypeConversionException("Cannot set auto timeout lower than 1");
+        autoTimeout = Duration.ofSeconds(val);
+    }
+
     void importDeps(Set<Path> projects) {
         Set<Path> deps = new TreeSet<>(projects);
         addDeps(deps);
@@ -50,22 +91,39 @@ class AbstractImportCommand extends AbstractHistoryCommand {
             return;
         }
 
-        io.report("Projects to be imported: " + deps.size());
-        var queue = elph.getCatalog().inTopologicalOrder(deps.stream()).collect(toCollection(LinkedList::new));
-        final int total = queue.size();
-        var stack = new LinkedList<Path>();
+        // group the projects into waves, where each wave depends only on earlier waves
+        var waves = elph.getCatalog().getImportWaves(deps);
+        io.reportf("Projects to be imported: %d in %d wave(s)", deps.size(), waves.size());
+        boolean firstInstructionsNeeded = noImportHistory();
+        var costs = new CostModel(io).estimate(deps, new ImportLog(io, elph.getWorkspaceSettingsDir()).read());
+        if (elph.isDryRun()) {
+            showPlan(waves, costs, firstInstructionsNeeded);
+            return;
+        }
+        if (pipelineWindow > 0) {
+            try (var watcher = new ProjectsWatcher(io, elph.getEclipseDotProjectsDir())) {
+                importPipelined(waves, costs, firstInstructionsNeeded, watcher);
+            }
+            return;
+        }
+        try (var watcher = auto ? new ProjectsWatcher(io, elph.getEclipseDotProjectsDir()) : null) {
+            importBatches(waves, costs, firstInstructionsNeeded, watcher);
+        }
+    }
 
+    /**
+     * Import the batches one at a time, split exactly as {@link #showPlan} reports them.
+     */
+    private void importBatches(List<Set<Path>> waves, Map<Path, Long> costs, boolean firstInstructionsNeeded, ProjectsWatcher watcher) {
+        var pending = new LinkedList<List<Path>>();
+        for (int i = 0; i < waves.size(); i++) pending.addAll(toBatches(waves.get(i), costs, firstInstructionsNeeded && 0 == i));
+        final int total = pending.stream().mapToInt(List::size).sum();
+        int remaining = total;
 
-        boolean firstInstructionsNeeded = noImportHistory();
         boolean instructionsNeeded = true;
 
-        for (Path p = queue.poll(); null != p; p = queue.poll()) {
-            stack.push(p);
-            boolean batchComplete = stack.size() == maxBatchSize;
-            boolean lastBatch = queue.isEmpty();
+        for (var batch = pending.poll(); null != batch; batch = pending.poll()) {
             // import the first project "cnf" on its own, with extra instructions
-            // otherwise import in batches, allowing for an under-sized final batch
-            if (!(firstInstructionsNeeded || batchComplete || lastBatch)) continue;
             if (firstInstructionsNeeded) {
                 displayFirstDialogInstructions();
                 firstInstructionsNeeded = false;
@@ -73,16 +131,131 @@ class AbstractImportCommand extends AbstractHistoryCommand {
                 displayGeneralInstructions();
                 instructionsNeeded = false;
             }
-            if (stack.size() == 1) io.reportf("Importing project %d of %d", total - queue.size(), total);
-            else io.reportf("Importing projects %d..%d of %d", 1 + total - queue.size() - stack.size(), total - queue.size(), total);
-            importProjects(stack);
+            int first = 1 + total - remaining;
+            if (batch.size() == 1) io.reportf("Importing project %d of %d", first, total);
+            else io.reportf("Importing projects %d..%d of %d", first, first + batch.size() - 1, total);
+            var stack = new LinkedList<>(batch);
+            importProjects(stack, watcher);
+            remaining -= batch.size() - stack.size();
             if (stack.isEmpty()) continue;
             // to ensure unimported projects still get imported, put them back at the head of the queue
             io.infof("Re-inserting %d project(s) at the head of the current import queue.", stack.size());
-            while (null != (p = stack.poll())) queue.addFirst(p);
+            pending.addFirst(stack);
+        }
+    }
+
+    /**
+     * Report the waves and the batches each would be imported in, along with the commands that would be run.
+     */
+    private void showPlan(List<Set<Path>> waves, Map<Path, Long> costs, boolean firstProjectAlone) {
+        for (int i = 0; i < waves.size(); i++) {
+            var batches = toBatches(waves.get(i), costs, firstProjectAlone && 0 == i);
+            io.reportf("Wave %d: %d project(s) in %d batch(es)", i + 1, waves.get(i).size(), batches.size());
+            for (var b: batches) {
+                io.reportf("  Batch of %d project(s), estimated cost %d", b.size(), b.stream().mapToLong(costs::get).sum());
+                if (io.isEnabled(INFO)) asNames(b).map("\t"::concat).forEach(io::infof);
+                elph.importProjects(b);
+            }
         }
     }
 
+    /**
+     * Split a wave into batches, limited by both size and estimated cost.
+     */
+    private List<List<Path>> toBatches(Set<Path> wave, Map<Path, Long> costs, boolean firstProjectAlone) {
+        var batches = new ArrayList<List<Path>>();
+        var batch = new ArrayList<Path>();
+        long batchCost = 0;
+        for (Path p: wave) {
+            if (!batch.isEmpty() && (batch.size() == maxBatchSize || batchCost + costs.get(p) > maxBatchCost)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchCost = 0;
+            }
+            batch.add(p);
+            batchCost += costs.get(p);
+            if (firstProjectAlone) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchCost = 0;
+                firstProjectAlone = false;
+            }
+        }
+        if (!batch.isEmpty()) batches.add(batch);
+        return batches;
+    }
+
+    /** A batch that has been sent to Eclipse but is not yet fully imported */
+    private record InFlight(List<Path> batch, Instant start) {}
+
+    /**
+     * Keep several batches in flight at once, starting each batch as soon as everything it depends on has been imported.
+     * Batches in the same wave do not depend on each other, so only the projects in earlier waves need to be checked.
+     */
+    private void importPipelined(List<Set<Path>> waves, Map<Path, Long> costs, boolean firstInstructionsNeeded, ProjectsWatcher watcher) {
+        var waveOf = new HashMap<Path, Integer>();
+        var pending = new LinkedList<List<Path>>();
+        for (int i = 0; i < waves.size(); i++) {
+            for (Path p: waves.get(i)) waveOf.put(p, i);
+            pending.addAll(toBatches(waves.get(i), costs, firstInstructionsNeeded && 0 == i));
+        }
+        final int total = waveOf.size();
+        int imported = 0;
+        if (firstInstructionsNeeded) displayFirstDialogInstructions();
+        else displayGeneralInstructions();
+        var log = new ImportLog(io, elph.getWorkspaceSettingsDir());
+        var inFlight = new ArrayList<InFlight>();
+        while (!pending.isEmpty() || !inFlight.isEmpty()) {
+            boolean changed = false;
+            // check on the batches in flight
+            for (var it = inFlight.iterator(); it.hasNext(); ) {
+                var flight = it.next();
+                var missing = watcher.missing(toNames(flight.batch()));
+                var elapsed = Duration.between(flight.start(), Instant.now());
+                if (!missing.isEmpty() && elapsed.compareTo(autoTimeout) < 0) continue;
+                it.remove();
+                changed = true;
+                var failed = flight.batch().stream().filter(p -> missing.contains(p.getFileName().toString())).toList();
+                var succeeded = flight.batch().stream().filter(not(failed::contains)).toList();
+                log.record(ImportLog.Batch.of(flight.start(), elapsed, succeeded, failed));
+                imported += succeeded.size();
+                if (failed.isEmpty()) {
+                    io.infof("Successfully imported %d project(s) in %d seconds.", succeeded.size(), elapsed.toSeconds());
+                    continue;
+                }
+                if (succeeded.isEmpty()) throw io.error("No projects were imported within " + autoTimeout.toSeconds() + " seconds.",
+                        "Check the import dialogs in Eclipse, or use --auto-timeout to wait longer.");
+                // to ensure unimported projects still get imported, put them back at the head of the queue
+                io.warn("Failed to import " + failed.size() + " project(s) within " + autoTimeout.toSeconds() + " seconds.");
+                pending.addFirst(failed);
+            }
+            // start as many batches as the window allows, in order, as long as their dependencies are all imported
+            while (inFlight.size() < pipelineWindow && !pending.isEmpty() && isReady(pending.peek(), waveOf, watcher)) {
+                var batch = pending.poll();
+                io.reportf("Importing %d project(s), with %d of %d imported so far and %d batch(es) in flight", batch.size(), imported, total, inFlight.size());
+                inFlight.add(new InFlight(batch, Instant.now()));
+                elph.importProjects(batch);
+                changed = true;
+            }
+            if (changed) continue;
+            if (inFlight.isEmpty()) throw io.error("Cannot import any more projects until their dependencies are imported: " + asNames(pending.peek()).toList());
+            try {
+                watcher.awaitChange();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw io.error("Interrupted while waiting for Eclipse to import projects");
+            }
+        }
+    }
+
+    private boolean isReady(List<Path> batch, Map<Path, Integer> waveOf, ProjectsWatcher watcher) {
+        int wave = waveOf.get(batch.get(0));
+        var deps = elph.getCatalog().getAllDependencyPaths(toNames(batch))
+                .filter(p -> waveOf.getOrDefault(p, wave) < wave)
+                .toList();
+        return watcher.missing(toNames(deps)).isEmpty();
+    }
+
     private void displayGeneralInstructions() {
         io.banner(
                 "Several import dialogs are about to open in Eclipse.",
@@ -106,13 +279,27 @@ class AbstractImportCommand extends AbstractHistoryCommand {
         io.pause();
     }
 
-    private void importProjects(LinkedList<Path> stack) {
+    /**
+     * Import a batch of projects, and wait for Eclipse to import them.
+     * Any projects not imported are left in the stack.
+     * @param watcher the watcher to wait on in auto mode, or <code>null</code> to wait for the user to press return
+     */
+    private void importProjects(LinkedList<Path> stack, ProjectsWatcher watcher) {
+        var batch = List.copyOf(stack);
+        var start = Instant.now();
         elph.importProjects(stack);
-        io.pause();
+        if (null == watcher) io.pause();
+        else awaitImport(stack, watcher);
+        var elapsed = Duration.between(start, Instant.now());
         int count = stack.size();
         boolean anyImportingHappened = stack.removeAll(elph.getEclipseProjects());
         if (stack.isEmpty()) {
             io.infof("Successfully imported %d project(s).", count);
+        } else if (null != watcher) {
+            // in auto mode, keep going while progress is being made
+            if (!anyImportingHappened) throw io.error("No projects were imported within " + autoTimeout.toSeconds() + " seconds.",
+                    "Check the import dialogs in Eclipse, or use --auto-timeout to wait longer.");
+            io.warn("Failed to import " + stack.size() + " project(s) within " + autoTimeout.toSeconds() + " seconds.");
         } else {
             // some or all of the projects were not imported
             // give the user a nudge to figure out what is going wrong
@@ -127,6 +314,19 @@ class AbstractImportCommand extends AbstractHistoryCommand {
             io.pause();
             stack.removeAll(elph.getEclipseProjects()); // rule out any additional imports that have been processed
         }
+        var imported = new ArrayList<>(batch);
+        imported.removeAll(stack);
+        new ImportLog(io, elph.getWorkspaceSettingsDir()).record(ImportLog.Batch.of(start, elapsed, imported, stack));
+    }
+
+    private void awaitImport(Collection<Path> projects, ProjectsWatcher watcher) {
+        io.reportf("Waiting up to %d seconds for Eclipse to import %d project(s)...", autoTimeout.toSeconds(), projects.size());
+        try {
+            watcher.await(toNames(projects), autoTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw io.error("Interrupted while waiting for Eclipse to import projects");
+        }
     }
 
      void eclipseImportCheckboxCheck() {
@@ -12,15 +12,33 @@
  */
 package io.openliberty.elph.cmd;
 
+import io.openliberty.elph.bnd.BndCatalog;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.TypeConversionException;
+
+import java.nio.file.Path;
 
 @Command(name = "analyze", description = "Force re-analysis of dependencies using bnd. Slow!")
 public class AnalyzeCommand implements Runnable {
     @ParentCommand
     ElphCommand elph;
+
+    private int threads = BndCatalog.DEFAULT_THREADS;
+
+    @Option(names = {"-t", "--threads"}, paramLabel = "N", description = "Number of projects to analyze concurrently. Defaults to the number of available processors.")
+    private void setThreads(int val) {
+        if (val <= 0) throw new TypeConversionException("Cannot set thread count lower than 1");
+        threads = val;
+    }
+
+    @Option(names = {"-x", "--export-text"}, paramLabel = "FILE", description = "Also write the dependencies to a text file, one 'a -> b' line per dependency.")
+    private Path exportFile;
+
     @Override
     public void run() {
-        elph.getCatalog().reanalyze();
+        elph.getCatalog().reanalyze(threads);
+        if (null != exportFile) elph.getCatalog().exportDeps(exportFile);
     }
 }
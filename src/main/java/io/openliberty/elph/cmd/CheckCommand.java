@@ -12,6 +12,8 @@
  */
 package io.openliberty.elph.cmd;
 
+import io.openliberty.elph.eclipse.EclipseWorkspace.Project;
+import io.openliberty.elph.util.IO;
 import picocli.CommandLine.Command;
 
 import java.util.TreeSet;
@@ -21,7 +23,6 @@ import static io.openliberty.elph.util.IO.Verbosity.DEBUG;
 import static io.openliberty.elph.util.IO.Verbosity.INFO;
 import static io.openliberty.elph.util.IO.Verbosity.LOG;
 import static java.util.function.Predicate.not;
-import static java.util.stream.Collectors.toSet;
 
 @Command(name = "check", description = "Check the Eclipse workspace for issues. Increase verbosity to see more detail.")
 class CheckCommand extends AbstractHistoryCommand implements Runnable {
@@ -30,7 +31,7 @@ class CheckCommand extends AbstractHistoryCommand implements Runnable {
     @Override
     public void run() {
         var bndProjects = elph.getBndProjects();
-        var eclipseProjects = elph.getEclipseProjects();
+        var eclipseProjects = new TreeSet<>(elph.getEclipseProjects());
 
         // 0. stats
         io.reportf("%sProjects in OpenLiberty git repository: %d", GOOD, bndProjects.size());
@@ -38,10 +39,18 @@ class CheckCommand extends AbstractHistoryCommand implements Runnable {
         io.reportf("%sProjects in Eclipse workspace: %d", GOOD, eclipseProjects.size());
         if (io.isEnabled(LOG)) asNames(eclipseProjects).map(this::indent).forEach(io::logf);
 
+        // closed projects are known to Eclipse but are not built, so they count as missing below
+        var closedProjects = elph.getAllEclipseProjects().stream().filter(not(Project::open)).toList();
+        io.reportf("%sClosed projects in Eclipse workspace: %d", closedProjects.isEmpty() ? GOOD: BAD, closedProjects.size());
+        if (io.isEnabled(INFO)) closedProjects.stream().map(Project::name).map(this::indent).forEach(io::infof);
+
         // 1. ghost projects
-        var ghostProjects = eclipseProjects.stream().filter(not(bndProjects::contains)).collect(toSet());
+        var ghostProjects = elph.getAllEclipseProjects().stream()
+                .filter(Project::open)
+                .filter(not(p -> bndProjects.contains(p.location())))
+                .toList();
         io.reportf("%sPossible ghost projects (in workspace but not in git repository): %d", ghostProjects.isEmpty() ? GOOD: BAD, ghostProjects.size());
-        asNames(ghostProjects).map(this::indent).forEach(io::reportf);
+        ghostProjects.stream().map(this::describe).map(this::indent).forEach(io::reportf);
 
         // remove ghosts before continuing
         eclipseProjects.retainAll(bndProjects);
@@ -53,7 +62,15 @@ class CheckCommand extends AbstractHistoryCommand implements Runnable {
         io.reportf("%sGaps in Eclipse workspace: %d", missingProjects.isEmpty() ? GOOD: BAD, missingProjects.size());
         if (io.isEnabled(INFO)) asNames(missingProjects).map(this::indent).forEach(io::infof);
 
-        // 2. import history
+        // 3. dependency cycles
+        var cycles = elph.getCatalog().getDependencyCycles();
+        io.reportf("%sDependency cycles between projects: %d", cycles.isEmpty() ? GOOD: BAD, cycles.size());
+        cycles.forEach(edges -> {
+            io.reportf(indent("Cycle of %d dependencies:"), edges.size());
+            edges.stream().map(this::indent).map(this::indent).forEach(io::reportf);
+        });
+
+        // 4. import history
         var importPatterns = getHistoryList();
         if (importPatterns.isEmpty()) {
             // stop here if history is empty
@@ -61,20 +78,20 @@ class CheckCommand extends AbstractHistoryCommand implements Runnable {
             return;
         }
         io.reportf("%sImport patterns: %d", GOOD, importPatterns.size());
-        if (io.isEnabled(INFO)) importPatterns.stream().map(this::indent).forEach(io::infof);
+        if (io.isEnabled(INFO)) importPatterns.stream().map(Object::toString).map(this::indent).forEach(io::infof);
 
         var importProjects = getProjectsFromHistory();
         io.reportf("%sProjects matching import patterns: %d", importProjects.isEmpty() ? BAD: GOOD, importProjects.size());
         if (io.isEnabled(INFO)) asNames(importProjects).map(this::indent).forEach(io::infof);
 
-        // 3. remaining imports
+        // 5. remaining imports
         var remainingImports = new TreeSet<>(importProjects);
         addDeps(remainingImports);
         removeImported(remainingImports);
         io.reportf("%sRemaining projects to be imported: %d", remainingImports.isEmpty() ? GOOD: BAD, remainingImports.size());
         if (io.isEnabled(INFO)) asNames(remainingImports).map(this::indent).forEach(io::infof);
 
-        // 4. unrelated projects - fix by removing or telling elph to import
+        // 6. unrelated projects - fix by removing or telling elph to import
         addDeps(importProjects);
 
         var unrelatedProjects = new TreeSet<>(eclipseProjects);
@@ -85,4 +102,11 @@ class CheckCommand extends AbstractHistoryCommand implements Runnable {
     }
 
     String indent(String s) { return "  " + s; }
+
+    private String describe(Project project) {
+        var repo = project.repo().filter(not(IO.canonical(elph.getOpenLibertyRepo())::equals));
+        if (repo.isPresent()) return project.name() + " (from repository " + repo.get() + ")";
+        if (elph.getBndWorkspace().equals(project.location().getParent())) return project.name();
+        return project.name() + " (at " + project.location() + ")";
+    }
 }
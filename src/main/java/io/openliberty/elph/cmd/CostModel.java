@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.cmd;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Estimates how long Eclipse will take to build each project, so that batches can be packed to take roughly equal time.
+ * The estimate is in arbitrary units: one per Java source file, one per KB of Java source,
+ * plus a fixed overhead for every project, however small.
+ * <p>
+ * Where the import log records how long projects actually took, their times are used instead,
+ * converted into the same units at the rate those projects' estimates imply,
+ * so that the estimates for projects never imported before remain comparable.
+ */
+final class CostModel {
+    static final long PROJECT_OVERHEAD = 20;
+    /** Directories holding build output rather than source */
+    private static final Set<String> SKIPPED_DIRS = Set.of(".git", ".settings", "bin", "build", "generated");
+    private final IO io;
+
+    CostModel(IO io) { this.io = io; }
+
+    /**
+     * @return the estimated cost of building each project
+     */
+    Map<Path, Long> estimate(Collection<Path> projects) {
+        return projects.parallelStream().collect(toMap(identity(), this::estimate));
+    }
+
+    /**
+     * @param history the recorded import batches, from which to learn how long projects take
+     * @return the cost of building each project, learned from the history where possible and estimated otherwise
+     */
+    Map<Path, Long> estimate(Collection<Path> projects, List<ImportLog.Batch> history) {
+        var costs = new HashMap<>(estimate(projects));
+        var averageMillis = ImportLog.averageMillis(history);
+        var known = costs.keySet().stream().filter(p -> averageMillis.containsKey(p.getFileName().toString())).toList();
+        double knownMillis = known.stream().mapToDouble(p -> averageMillis.get(p.getFileName().toString())).sum();
+        if (known.isEmpty() || knownMillis <= 0) return costs;
+        double unitsPerMilli = known.stream().mapToLong(costs::get).sum() / knownMillis;
+        for (Path p: known) {
+            long cost = Math.max(1, Math.round(averageMillis.get(p.getFileName().toString()) * unitsPerMilli));
+            io.debugf("Learned cost of %s: %d (estimated %d)", p.getFileName(), cost, costs.get(p));
+            costs.put(p, cost);
+        }
+        return costs;
+    }
+
+    private long estimate(Path project) {
+        long[] filesAndBytes = new long[2];
+        try {
+            Files.walkFileTree(project, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return SKIPPED_DIRS.contains(dir.getFileName().toString()) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(".java")) {
+                        filesAndBytes[0]++;
+                        filesAndBytes[1] += attrs.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            io.warn("Could not measure the source files in " + project, e);
+        }
+        long cost = PROJECT_OVERHEAD + filesAndBytes[0] + filesAndBytes[1] / 1024;
+        io.debugf("Estimated cost of %s: %d (%d source files, %d bytes)", project.getFileName(), cost, filesAndBytes[0], filesAndBytes[1]);
+        return cost;
+    }
+}
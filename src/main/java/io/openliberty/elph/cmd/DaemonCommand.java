@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.cmd;
+
+import io.openliberty.elph.bnd.BndWatcher;
+import io.openliberty.elph.daemon.Daemon;
+import io.openliberty.elph.daemon.DaemonServer;
+import io.openliberty.elph.util.IO;
+import picocli.CommandLine;
+import picocli.CommandLine.ArgGroup;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+
+import static io.openliberty.elph.cmd.ElphCommand.TOOL_NAME;
+
+@Command(name = "daemon", description = "Run in the foreground, keeping the project catalog loaded and watching for changes to bnd files. " +
+        "While this is running, the list, project, and check commands are answered by the daemon.")
+class DaemonCommand extends AbstractCommand implements Runnable {
+    static class Actions {
+        @Option(names = {"-s", "--status"}, description = "Report whether a daemon is running.")
+        boolean status;
+        @Option(names = {"--stop"}, description = "Stop the running daemon.")
+        boolean stop;
+    }
+    @ArgGroup
+    final Actions actions = new Actions();
+
+    @Override
+    public void run() {
+        if (actions.status) {
+            io.report(Daemon.isRunning() ? "The " + TOOL_NAME + " daemon is running on " + Daemon.SOCKET : "No " + TOOL_NAME + " daemon is running.");
+            return;
+        }
+        if (actions.stop) {
+            io.report(Daemon.stop() ? "The " + TOOL_NAME + " daemon has been stopped." : "No " + TOOL_NAME + " daemon is running.");
+            return;
+        }
+        if (Daemon.isRunning()) throw io.error("The " + TOOL_NAME + " daemon is already running on " + Daemon.SOCKET);
+        // load the catalog before accepting any requests
+        var catalog = elph.getCatalog();
+        IO.setEmbedded(true);
+        try (var watcher = new BndWatcher(catalog, io)) {
+            var watcherThread = new Thread(watcher, "bnd file watcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+            // the watcher updates the catalog, so only run one command at a time
+            new DaemonServer(io, args -> {
+                synchronized (catalog) {
+                    return execute(args);
+                }
+            }).run();
+        } catch (IOException e) {
+            throw io.error("Could not start " + TOOL_NAME + " daemon", e);
+        } finally {
+            IO.setEmbedded(false);
+        }
+    }
+
+    /** Run a command within this process, re-using the same (already loaded) parent command */
+    private int execute(String... args) {
+        IO.resetSettings();
+        elph.refreshEclipseWorkspace();
+        elph.refreshCatalog();
+        try {
+            return new CommandLine(elph)
+                    .setAbbreviatedSubcommandsAllowed(true)
+                    .setExecutionExceptionHandler((e, cmd, result) -> {
+                        if (e.getCause() instanceof IO.Abort) return 1;
+                        throw e;
+                    })
+                    .execute(args);
+        } catch (IO.Abort e) {
+            // the error has already been reported
+            return 1;
+        }
+    }
+}
@@ -13,6 +13,7 @@
 package io.openliberty.elph.cmd;
 
 import io.openliberty.elph.bnd.BndCatalog;
+import io.openliberty.elph.eclipse.EclipseWorkspace;
 import io.openliberty.elph.util.IO;
 import io.openliberty.elph.util.OS;
 import picocli.AutoComplete.GenerateCompletion;
@@ -33,8 +34,6 @@ import java.util.TreeSet;
 
 import static io.openliberty.elph.util.IO.Verbosity.DEBUG;
 import static io.openliberty.elph.util.OS.MAC;
-import static java.util.Collections.emptyList;
-import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toCollection;
 
@@ -55,6 +54,8 @@ import static java.util.stream.Collectors.toCollection;
                 ReimportCommand.class,
                 ForgetCommand.class,
                 CheckCommand.class,
+                StatsCommand.class,
+                DaemonCommand.class,
         }, // subcommands can also be annotated methods
         defaultValueProvider = PropertiesDefaultProvider.class
 )
@@ -71,9 +72,14 @@ public class ElphCommand {
     @Mixin
     private IO io = new IO();
     private BndCatalog catalog;
+    private Path catalogWorkspace;
+    private EclipseWorkspace eclipseState;
+    private Path eclipseStateDir;
+    private Path eclipseStateProjectsRoot;
     private boolean validationRequired = true;
 
     void allowNullPaths() { validationRequired = false; }
+    boolean isDryRun() { return dryRun; }
     Path getOpenLibertyRepo() {
         if (validationRequired && null == olRepo) throw io.error("No Open Liberty repository configured");
         return olRepo;
@@ -115,16 +121,18 @@ public class ElphCommand {
         else if (!Files.isDirectory(olRepo.resolve("dev"))) io.warn("Open Liberty repository does not contain an expected 'dev' subdirectory: " + olRepo);
     }
 
-    private Path getBndWorkspace() {
+    Path getBndWorkspace() {
         return getOpenLibertyRepo().resolve("dev");
     }
 
     public BndCatalog getCatalog() {
-        if (this.catalog == null) {
-            Path bndWorkspace = getBndWorkspace();
+        Path bndWorkspace = getBndWorkspace();
+        // a long-running process (i.e. the daemon) keeps the catalog until the configuration changes
+        if (this.catalog == null || !bndWorkspace.equals(catalogWorkspace)) {
             if (Files.isDirectory(bndWorkspace)) {
                 try {
                     this.catalog = new BndCatalog(bndWorkspace, io, getRepoSettingsDir());
+                    this.catalogWorkspace = bndWorkspace;
                 } catch (IOException e) {
                     throw io.error("Could not inspect bnd workspace: " + bndWorkspace);
                 }
@@ -135,6 +143,11 @@ public class ElphCommand {
         return this.catalog;
     }
 
+    /** Pick up dependencies saved by another process, e.g. at the start of each command run by the daemon */
+    void refreshCatalog() {
+        if (null != catalog) catalog.reloadIfSaveFileChanged();
+    }
+
     void runExternal(boolean blocking, List<String> cmd) {
         try {
             if (dryRun) {
@@ -157,27 +170,31 @@ public class ElphCommand {
         }
     }
 
-    private List<List<String>> getBunchedEclipseCmds(Collection<Path> paths) {
-        if (paths.isEmpty()) return emptyList();
-        // Allow an arg list of total String length 4096.
-        // Even Windows XP allows twice this length for the whole command.
-        // So we should still be safe even after adding the rest of the Eclipse command line.
-        final int max = 4096;
-        List<List<String>> cmds = new ArrayList<>();
-        List<Path> buffer = new ArrayList<>();
-        int length = 0;
-        for (Path p: paths) {
-            // flush the buffer into a new command when we reach the limit
-            if (length + p.toString().length() > max) {
-                cmds.add(getEclipseCmd(buffer.toArray(Path[]::new)));
-                length = 0;
-                buffer.clear();
+    /**
+     * Run the first command to completion, then start all the others before waiting for any of them to finish.
+     * The first launch may have to start Eclipse, and any concurrent launch would then fail to lock the workspace;
+     * once Eclipse is running, the others only hand their projects over to it.
+     */
+    private void runConcurrently(List<List<String>> cmds) {
+        runExternal(true, cmds.get(0));
+        var rest = cmds.subList(1, cmds.size());
+        if (dryRun) {
+            rest.forEach(cmd -> runExternal(true, cmd));
+            return;
+        }
+        var processes = new ArrayList<Process>();
+        for (var cmd: rest) {
+            try {
+                processes.add(new ProcessBuilder(cmd).inheritIO().start());
+            } catch (IOException e) {
+                io.error("Error invoking command " + cmd.stream().collect(joining("' '", "'", "'")) + e.getMessage());
             }
-            buffer.add(p);
         }
-        // put any remaining paths into a final eclipse command
-        cmds.add(getEclipseCmd(buffer.toArray(Path[]::new)));
-        return cmds;
+        try {
+            for (var p: processes) p.waitFor();
+        } catch (InterruptedException e) {
+            io.error("Interrupted waiting for commands to complete: " + e.getMessage());
+        }
     }
 
     private List<String> getEclipseCmd(Path... projects) {
@@ -190,32 +207,41 @@ public class ElphCommand {
     }
 
     void importProjects(Collection<Path> projectPaths) {
-        getBunchedEclipseCmds(projectPaths).forEach(cmd -> runExternal(true, cmd));
+        var cmds = OS.current().getEclipseCmds(getEclipseHome(), getEclipseWorkspace(), projectPaths);
+        io.debugf("Importing %d project(s) using %d command(s)", projectPaths.size(), cmds.size());
+        if (cmds.size() > 1 && OS.current().allowsConcurrentLaunches) runConcurrently(cmds);
+        else cmds.forEach(cmd -> runExternal(true, cmd));
     }
 
     Set<Path> getBndProjects() {
         return getCatalog().findProjects("*").collect(toCollection(TreeSet::new));
     }
 
-    Set<Path> getEclipseProjects() {
-        return getEclipseProjectNames().stream().map(getOpenLibertyRepo().resolve("dev")::resolve).collect(toCollection(TreeSet::new));
+    /**
+     * @return the locations of the projects currently open in the Eclipse workspace, which must not be modified
+     */
+    Set<Path> getEclipseProjects() { return getEclipseWorkspaceState().openProjects(); }
+
+    /**
+     * @return every project known to the Eclipse workspace, open or closed, wherever it is located
+     */
+    Collection<EclipseWorkspace.Project> getAllEclipseProjects() { return getEclipseWorkspaceState().projects(); }
+
+    /** Pick up changes to projects already known to Eclipse, e.g. projects closed since the last command */
+    void refreshEclipseWorkspace() {
+        if (null != eclipseState) eclipseState.refresh();
     }
 
-    Set<String> getEclipseProjectNames() {
+    private EclipseWorkspace getEclipseWorkspaceState() {
         Path dotProjectsDir = getEclipseDotProjectsDir();
-        try {
-            io.debugf("Finding known projects");
-            return Files.list(dotProjectsDir)
-                    .filter(Files::isDirectory)
-                    .map(Path::getFileName)
-                    .map(Path::toString)
-                    .filter(not(s -> s.startsWith(".")))
-                    .peek(s -> io.debugf("Known project: %s", s))
-                    .collect(toCollection(TreeSet::new));
-        } catch (IOException e) {
-            throw io.error("Could not enumerate Eclipse projects despite finding metadata location: " + dotProjectsDir,
-                    "Exception was " + e);
+        Path projectsRoot = getBndWorkspace();
+        // a long-running process (i.e. the daemon) keeps the snapshot until the configuration changes
+        if (null == eclipseState || !dotProjectsDir.equals(eclipseStateDir) || !projectsRoot.equals(eclipseStateProjectsRoot)) {
+            eclipseState = new EclipseWorkspace(io, getEclipseWorkspace(), dotProjectsDir, projectsRoot);
+            eclipseStateDir = dotProjectsDir;
+            eclipseStateProjectsRoot = projectsRoot;
         }
+        return eclipseState;
     }
 
     Path getWorkspaceSettingsDir() {
@@ -232,5 +258,5 @@ public class ElphCommand {
         return dir;
     }
 
-    private Path getEclipseDotProjectsDir() { return io.verifyDir(".projects dir", getEclipseWorkspace().resolve(DOT_PROJECTS)); }
+    Path getEclipseDotProjectsDir() { return io.verifyDir(".projects dir", getEclipseWorkspace().resolve(DOT_PROJECTS)); }
 }
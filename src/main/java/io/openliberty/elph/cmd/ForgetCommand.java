@@ -19,6 +19,8 @@ import picocli.CommandLine.Parameters;
 
 import java.util.List;
 
+import static io.openliberty.elph.util.IO.Verbosity.INFO;
+
 @Command(name = ForgetCommand.SUBCOMMAND_NAME, description = "Remove items from import history.")
 class ForgetCommand extends AbstractHistoryCommand implements Runnable {
     static final String SUBCOMMAND_NAME = "forget";
@@ -42,7 +44,7 @@ class ForgetCommand extends AbstractHistoryCommand implements Runnable {
                 return;
             }
             io.reportf("What would you like to forget? Here is the import history:");
-            history.stream().map(s -> "  " + s).forEach(io::report);
+            history.stream().map(this::describe).map(s -> "  " + s).forEach(io::report);
         } else if (args.all) {
             deleteHistory();
         } else if (null != args.patterns) {
@@ -50,4 +52,10 @@ class ForgetCommand extends AbstractHistoryCommand implements Runnable {
             throw io.error("Nothing deleted.");
         }
     }
+
+    private String describe(ImportHistory.Entry entry) {
+        if (!io.isEnabled(INFO)) return entry.toString();
+        var resolved = entry.resolved() == ImportHistory.UNKNOWN ? "?" : Integer.toString(entry.resolved());
+        return String.format("%s (%s projects, last imported %s)", entry, resolved, entry.recorded());
+    }
 }
@@ -12,29 +12,63 @@
  */
 package io.openliberty.elph.cmd;
 
+import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.TypeConversionException;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.stream.Collectors.toCollection;
 
 @Command(name = ImportCommand.SUBCOMMAND_NAME, description = "Add project and its dependencies to Eclipse. ")
 class ImportCommand extends AbstractImportCommand implements Runnable {
     static final String SUBCOMMAND_NAME = "import";
 
-    @Option(names = {"-u", "--users"}, description = "Include users of the specified projects. Helps spot incompatible code changes.")
-    boolean includeUsers;
+    static class Users {
+        @Option(names = {"-u", "--users"}, description = "Include users of the specified projects. Helps spot incompatible code changes.")
+        boolean direct;
+        int depth;
+        @Option(names = "--users-depth", paramLabel = "N", description = "Include users of the specified projects, and their users, up to N levels removed.")
+        private void setDepth(int val) {
+            if (val <= 0) throw new TypeConversionException("Cannot set users depth lower than 1");
+            depth = val;
+        }
+        @Option(names = "--all-users", description = "Include all users of the specified projects, directly or indirectly. Helps spot API-breaking changes.")
+        boolean all;
+
+        int depth() { return all ? ALL_USERS : depth > 0 ? depth : direct ? 1 : 0; }
+    }
+    @ArgGroup
+    final Users users = new Users();
+
+    @Option(names = "--max-users", paramLabel = "N", defaultValue = "100", description = "Refuse to include more than N users of the specified projects. Default: ${DEFAULT-VALUE}")
+    int maxUsers;
+
     @Parameters(paramLabel = "PATTERN", arity = "1", description = "projects to be imported")
     List<String> patterns;
 
     @Override
     public void run() {
-        addToHistory(patterns, includeUsers);
-        var projects = findProjects(patterns.stream(), includeUsers);
+        int depth = users.depth();
+        var matches = findProjectsByPattern(patterns);
+        var projects = matches.values().stream().flatMap(Set::stream).collect(toCollection(TreeSet::new));
+        if (depth > 0) includeUsers(projects, depth);
+        addToHistory(matches, depth);
         eclipseImportCheckboxCheck();
         importDeps(projects);
     }
 
-
-
+    private void includeUsers(Set<Path> projects, int depth) {
+        int specified = projects.size();
+        addUsers(projects, depth);
+        int count = projects.size() - specified;
+        io.reportf("Including %d user(s) of %d specified project(s).", count, specified);
+        if (count > maxUsers) throw io.error("Too many users to import: " + count + " (the limit is " + maxUsers + ")",
+                "Use --max-users to raise the limit, or --users-depth to include fewer levels of users.");
+    }
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.cmd;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.openliberty.elph.cmd.AbstractCommand.ALL_USERS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The import history, kept in the workspace settings directory as a journal of tab-separated lines:
+ * <pre>
+ *     +    recorded-time    users-depth    resolved-projects    pattern
+ *     -    recorded-time    pattern
+ * </pre>
+ * A <code>+</code> line records a pattern, replacing any entry with the same pattern and users depth.
+ * A <code>-</code> line forgets a pattern, whatever its users depth.
+ * <p>
+ * Each change is appended to the journal, so it costs one short write however long the history is.
+ * Once the journal holds many more lines than entries, it is compacted in the background:
+ * the entries are written to a temporary file, which is then renamed over the journal.
+ * A crash therefore leaves either the old journal or the compacted one, never a mixture.
+ * Another elph process may append to the same journal, so the compacted journal only replaces it
+ * if its size is still exactly what this process has read and written.
+ * Only temporary files too old to belong to a compaction still in progress are ever cleared away.
+ * The compactor never reports anything itself: any failure is reported by the next call to this class.
+ * <p>
+ * The plain list of patterns written by earlier versions (<code>import.hist</code>) is migrated on first use.
+ */
+final class ImportHistory {
+    /** The number of resolved projects for an entry migrated from the old history file */
+    static final int UNKNOWN = -1;
+    private static final String FILE = "import.history";
+    private static final String LEGACY_FILE = "import.hist";
+    private static final String DESC = "import history";
+    private static final String ADDED = "+";
+    private static final String FORGOTTEN = "-";
+    /** Never bother compacting a journal shorter than this */
+    private static final int MIN_COMPACTION_LINES = 100;
+    /** A compaction takes moments, so a temporary file older than this has been abandoned */
+    private static final Duration ABANDONED_TEMP_AGE = Duration.ofMinutes(10);
+    private static final String USERS_PREFIX = "--users ";
+    private static final String USERS_DEPTH_PREFIX = "--users-depth=";
+    private static final String ALL_USERS_PREFIX = "--all-users ";
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "elph-history-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * An imported pattern.
+     * @param usersDepth how many levels of users were included, or {@link AbstractCommand#ALL_USERS}
+     * @param recorded when the pattern was last imported
+     * @param resolved how many projects the import found, including users but not dependencies
+     */
+    record Entry(String pattern, int usersDepth, Instant recorded, int resolved) {
+        private Key key() { return new Key(pattern, usersDepth); }
+
+        /**
+         * Parse a line of the old history file: a pattern, preceded by an option if users were included
+         * @throws RuntimeException if the line cannot be understood
+         */
+        private static Entry parseLegacy(String line, Instant recorded) {
+            if (line.startsWith(USERS_PREFIX)) return new Entry(line.substring(USERS_PREFIX.length()), 1, recorded, UNKNOWN);
+            if (line.startsWith(ALL_USERS_PREFIX)) return new Entry(line.substring(ALL_USERS_PREFIX.length()), ALL_USERS, recorded, UNKNOWN);
+            if (line.startsWith(USERS_DEPTH_PREFIX)) {
+                int space = line.indexOf(' ');
+                int depth = Integer.parseInt(line.substring(USERS_DEPTH_PREFIX.length(), space));
+                if (depth < 1) throw new IllegalArgumentException("Users depth must be at least 1: " + depth);
+                return new Entry(line.substring(space + 1), depth, recorded, UNKNOWN);
+            }
+            return new Entry(line, 0, recorded, UNKNOWN);
+        }
+
+        private String toLine() {
+            return String.join("\t", ADDED, recorded.toString(), Integer.toString(usersDepth), Integer.toString(resolved), pattern);
+        }
+
+        /** @return the pattern, preceded by the option that would include the same users, e.g. <code>--users-depth=2 com.ibm.ws.kernel*</code> */
+        @Override
+        public String toString() {
+            return switch (usersDepth) {
+                case 0 -> pattern;
+                case 1 -> USERS_PREFIX + pattern;
+                case ALL_USERS -> ALL_USERS_PREFIX + pattern;
+                default -> USERS_DEPTH_PREFIX + usersDepth + " " + pattern;
+            };
+        }
+    }
+
+    private record Key(String pattern, int usersDepth) {}
+
+    private final IO io;
+    private final Path file;
+    private final boolean existed;
+    /** Keyed by pattern and users depth, in the order the patterns were first recorded */
+    private final Map<Key, Entry> entries = new LinkedHashMap<>();
+    private int journalLines;
+    /** The size of the journal as read and written by this process, or -1 if unknown */
+    private long journalBytes = -1;
+    /** Incremented with every change, so that a compaction can tell whether it is out of date */
+    private long changes;
+    private boolean compacting;
+    /** Set by the compactor thread, and reported from the calling thread */
+    private IOException compactionFailure;
+
+    ImportHistory(IO io, Path settingsDir) {
+        this.io = io;
+        this.file = settingsDir.resolve(FILE);
+        Path legacyFile = settingsDir.resolve(LEGACY_FILE);
+        deleteAbandonedTempFiles(settingsDir);
+        this.existed = Files.exists(file) || Files.exists(legacyFile);
+        if (Files.exists(file)) load();
+        else if (Files.exists(legacyFile)) migrate(legacyFile);
+        else journalBytes = 0;
+    }
+
+    /** @return whether there was any history when this object was created */
+    boolean existed() { return existed; }
+
+    synchronized List<Entry> entries() {
+        reportCompactionFailure();
+        return List.copyOf(entries.values());
+    }
+
+    /** @param resolved the number of projects each pattern resolved to, keyed by pattern */
+    synchronized void add(Map<String, Integer> resolved, int usersDepth) {
+        reportCompactionFailure();
+        var now = Instant.now();
+        var journal = new StringBuilder();
+        resolved.forEach((pattern, count) -> {
+            var entry = new Entry(pattern, usersDepth, now, count);
+            entries.put(entry.key(), entry);
+            journal.append(entry.toLine()).append(System.lineSeparator());
+        });
+        append(journal.toString(), resolved.size());
+    }
+
+    /** @return the entries removed */
+    synchronized List<Entry> forget(Set<String> patterns) {
+        reportCompactionFailure();
+        var removed = new ArrayList<Entry>();
+        entries.values().removeIf(e -> patterns.contains(e.pattern()) && removed.add(e));
+        if (removed.isEmpty()) return removed;
+        var now = Instant.now().toString();
+        var forgotten = removed.stream().map(Entry::pattern).distinct().toList();
+        var journal = new StringBuilder();
+        forgotten.forEach(p -> journal.append(String.join("\t", FORGOTTEN, now, p)).append(System.lineSeparator()));
+        append(journal.toString(), forgotten.size());
+        return removed;
+    }
+
+    /** @return whether there was a history file to delete */
+    synchronized boolean delete() {
+        reportCompactionFailure();
+        entries.clear();
+        journalLines = 0;
+        journalBytes = 0;
+        changes++;
+        try {
+            io.logf("Deleting %s", file);
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw io.error("Could not delete file: " + file, e);
+        }
+    }
+
+    private void load() {
+        var broken = new ArrayList<String>();
+        // measure before reading, so that anything appended meanwhile makes the size look out of date
+        journalBytes = sizeOf(file);
+        io.readFile(DESC, file, line -> {
+            journalLines++;
+            if (!apply(line)) broken.add(line);
+        });
+        broken.forEach(line -> io.debugf("Skipping line in %s: %s", file, line));
+        // a crash can leave a partial last line, which the next append would run on from, so rewrite at once
+        if (broken.isEmpty()) compactInBackgroundIfNeeded();
+        else rewrite();
+    }
+
+    /** @return whether the line could be understood */
+    private boolean apply(String line) {
+        var fields = line.split("\t", -1);
+        try {
+            if (fields.length == 5 && ADDED.equals(fields[0])) {
+                var entry = new Entry(fields[4], Integer.parseInt(fields[2]), Instant.parse(fields[1]), Integer.parseInt(fields[3]));
+                entries.put(entry.key(), entry);
+                return true;
+            }
+            if (fields.length == 3 && FORGOTTEN.equals(fields[0])) {
+                entries.keySet().removeIf(k -> k.pattern().equals(fields[2]));
+                return true;
+            }
+        } catch (RuntimeException ignored) {}
+        return false;
+    }
+
+    private void migrate(Path legacyFile) {
+        io.logf("Migrating %s to %s", legacyFile, file);
+        var recorded = IO.getLastModified(legacyFile).toInstant();
+        var broken = new ArrayList<String>();
+        io.readFile(DESC, legacyFile, line -> {
+            if (line.isBlank()) return;
+            try {
+                var entry = Entry.parseLegacy(line.replace('%', '*'), recorded);
+                entries.putIfAbsent(entry.key(), entry);
+            } catch (RuntimeException e) {
+                broken.add(line);
+            }
+        });
+        broken.forEach(line -> io.debugf("Skipping line in %s: %s", legacyFile, line));
+        rewrite();
+        try {
+            Files.delete(legacyFile);
+        } catch (IOException e) {
+            io.warn("Could not delete old " + DESC + " file: " + legacyFile, e);
+        }
+    }
+
+    private void append(String lines, int count) {
+        io.appendToFile(DESC, file, lines);
+        if (journalBytes >= 0) journalBytes += lines.getBytes(UTF_8).length;
+        journalLines += count;
+        changes++;
+        compactInBackgroundIfNeeded();
+    }
+
+    private void rewrite() {
+        var journal = toJournal(entries.values());
+        try {
+            IO.writeAtomically(file, journal);
+        } catch (IOException e) {
+            throw io.error("Could not write " + DESC + ": " + file, e);
+        }
+        journalLines = entries.size();
+        journalBytes = journal.getBytes(UTF_8).length;
+        changes++;
+    }
+
+    private void compactInBackgroundIfNeeded() {
+        if (compacting || journalBytes < 0 || journalLines < MIN_COMPACTION_LINES || journalLines < 2 * entries.size()) return;
+        compacting = true;
+        var snapshot = List.copyOf(entries.values());
+        long snapshotChanges = changes;
+        long snapshotBytes = journalBytes;
+        COMPACTOR.execute(() -> compact(snapshot, snapshotChanges, snapshotBytes));
+    }
+
+    private void compact(List<Entry> snapshot, long snapshotChanges, long snapshotBytes) {
+        Path temp = null;
+        try {
+            var journal = toJournal(snapshot);
+            temp = writeTemp(journal);
+            // hold the lock while renaming, so that no append from this process can be lost between checking and renaming
+            synchronized (this) {
+                // if anything has changed since the snapshot, leave it to the next change to try again
+                if (changes != snapshotChanges) return;
+                // if another process has written to the journal, its lines are not in the snapshot, so leave the journal alone
+                if (sizeOf(file) != snapshotBytes) return;
+                Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+                journalLines = snapshot.size();
+                journalBytes = journal.getBytes(UTF_8).length;
+            }
+        } catch (IOException e) {
+            synchronized (this) { compactionFailure = e; }
+        } finally {
+            synchronized (this) { compacting = false; }
+            deleteQuietly(temp);
+        }
+    }
+
+    private void reportCompactionFailure() {
+        if (null == compactionFailure) return;
+        // the journal is still intact, so this is not worth stopping for
+        io.warn("Could not compact " + DESC + ": " + file, compactionFailure);
+        compactionFailure = null;
+    }
+
+    private static String toJournal(Collection<Entry> entries) {
+        var journal = new StringBuilder();
+        entries.forEach(e -> journal.append(e.toLine()).append(System.lineSeparator()));
+        return journal.toString();
+    }
+
+    private Path writeTemp(String contents) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), FILE, ".tmp");
+        Files.writeString(temp, contents);
+        return temp;
+    }
+
+    /** Any temporary file left behind is deleted by the first instance created once it has been abandoned long enough */
+    private static void deleteQuietly(Path temp) {
+        if (null == temp) return;
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {}
+    }
+
+    /** @return the size of the file, or -1 if it cannot be found */
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /** Delete temporary files left behind by a crash, but not any that another process may still be writing */
+    private void deleteAbandonedTempFiles(Path dir) {
+        if (!Files.isDirectory(dir)) return;
+        var cutoff = Instant.now().minus(ABANDONED_TEMP_AGE);
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(dir, FILE + "*.tmp")) {
+            for (Path temp: temps) if (Files.getLastModifiedTime(temp).toInstant().isBefore(cutoff)) Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            io.debugf("Could not delete abandoned temporary files in %s: %s", dir, e);
+        }
+    }
+}
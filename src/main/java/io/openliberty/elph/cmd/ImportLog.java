@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.cmd;
+
+import io.openliberty.elph.util.IO;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static io.openliberty.elph.bnd.ProjectPaths.asNames;
+
+/**
+ * An append-only log of import batches, kept in the workspace settings directory.
+ * Each batch is one tab-separated line:
+ * <pre>
+ *     start-time    elapsed-millis    imported-projects    failed-projects
+ * </pre>
+ * The projects are comma-separated names.
+ * Lines that cannot be parsed are skipped, so that the format can be extended.
+ */
+final class ImportLog {
+    private static final String LOG_FILE = "import.log";
+    private static final String LOG_FILE_DESC = "import log";
+
+    /** A single batch, timed from when Eclipse was asked to import it until the user returned to elph */
+    record Batch(Instant start, Duration elapsed, List<String> imported, List<String> failed) {
+        static Batch of(Instant start, Duration elapsed, Collection<Path> imported, Collection<Path> failed) {
+            return new Batch(start, elapsed, asNames(imported).toList(), asNames(failed).toList());
+        }
+
+        int size() { return imported.size() + failed.size(); }
+
+        Stream<String> projects() { return Stream.concat(imported.stream(), failed.stream()); }
+
+        private String toLine() {
+            return String.join("\t", start.toString(), Long.toString(elapsed.toMillis()), String.join(",", imported), String.join(",", failed));
+        }
+
+        private static Optional<Batch> parse(String line) {
+            var fields = line.split("\t", -1);
+            if (fields.length < 4) return Optional.empty();
+            try {
+                return Optional.of(new Batch(Instant.parse(fields[0]), Duration.ofMillis(Long.parseLong(fields[1])), names(fields[2]), names(fields[3])));
+            } catch (RuntimeException e) {
+                return Optional.empty();
+            }
+        }
+
+        private static List<String> names(String field) {
+            return field.isEmpty() ? List.of() : List.of(field.split(","));
+        }
+    }
+
+    private final IO io;
+    private final Path file;
+
+    ImportLog(IO io, Path settingsDir) {
+        this.io = io;
+        this.file = settingsDir.resolve(LOG_FILE);
+    }
+
+    void record(Batch batch) {
+        io.appendToFile(LOG_FILE_DESC, file, batch.toLine() + System.lineSeparator());
+    }
+
+    List<Batch> read() {
+        var batches = new ArrayList<Batch>();
+        if (!Files.exists(file)) return batches;
+        io.readFile(LOG_FILE_DESC, file, line -> Batch.parse(line).ifPresentOrElse(batches::add, () -> io.debugf("Skipping line in %s: %s", file, line)));
+        return batches;
+    }
+
+    /**
+     * A batch is built all at once, so its time is shared equally between its projects.
+     * @return the average time each project has taken to import, in milliseconds, keyed by project name
+     */
+    static Map<String, Double> averageMillis(List<Batch> batches) {
+        var totals = new HashMap<String, Double>();
+        var counts = new HashMap<String, Integer>();
+        for (var batch: batches) {
+            if (batch.size() == 0) continue;
+            double share = (double) batch.elapsed().toMillis() / batch.size();
+            batch.projects().forEach(name -> {
+                totals.merge(name, share, Double::sum);
+                counts.merge(name, 1, Integer::sum);
+            });
+        }
+        totals.replaceAll((name, total) -> total / counts.get(name));
+        return totals;
+    }
+}
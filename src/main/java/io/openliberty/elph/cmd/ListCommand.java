@@ -28,6 +28,8 @@ class ListCommand extends AbstractCommand implements Runnable {
     boolean showDeps;
     @Option(names = {"-u", "--show-users"}, description = "Show all users of matching projects")
     boolean showUsers;
+    @Option(names = {"-U", "--show-all-users"}, description = "Show all users of matching projects, directly or indirectly")
+    boolean showAllUsers;
 
     static class Hiding {
         @Option(names = {"-h", "--hide-imported"}, description = "Hide already imported projects")
@@ -44,11 +46,12 @@ class ListCommand extends AbstractCommand implements Runnable {
     @Override
     public void run() {
         var projects = findProjects(patterns.stream());
-        if (showUsers) addUsers(projects);
+        if (showAllUsers) addAllUsers(projects);
+        else if (showUsers) addUsers(projects);
         if (showDeps) addDeps(projects);
-        var names = asNames(projects);
-        if (hiding.imported) names = names.filter(not(elph.getEclipseProjectNames()::contains));
-        if (hiding.unimported) names = names.filter(elph.getEclipseProjectNames()::contains);
-        names.sorted().forEach(io::report);
+        // only consult the Eclipse workspace when hiding, since listing must work without one
+        if (hiding.imported) projects.removeIf(elph.getEclipseProjects()::contains);
+        if (hiding.unimported) projects.removeIf(not(elph.getEclipseProjects()::contains));
+        asNames(projects).sorted().forEach(io::report);
     }
 }
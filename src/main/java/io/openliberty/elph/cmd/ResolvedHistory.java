@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.cmd;
+
+import io.openliberty.elph.cmd.ImportHistory.Entry;
+import io.openliberty.elph.util.IO;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static io.openliberty.elph.bnd.ProjectPaths.asNames;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * The projects that each import history entry resolved to, cached against the version of the catalog that resolved them,
+ * so that an unchanged history can be resolved again without matching any patterns or following any dependencies.
+ * The cache is kept in the workspace settings directory: the catalog version on the first line,
+ * then one tab-separated line per entry:
+ * <pre>
+ *     entry    comma-separated-project-names
+ * </pre>
+ * The entry is written as in the history listing, e.g. <code>--users-depth=2 com.ibm.ws.kernel*</code>.
+ * When the catalog version changes, e.g. because re-analysis found different dependencies, the whole cache is discarded.
+ */
+final class ResolvedHistory {
+    private static final String FILE = "history.cache";
+    private static final String DESC = "history cache";
+    private final IO io;
+    private final Path file;
+    private final String version;
+    private final Map<String, List<String>> resolved = new HashMap<>();
+    private boolean changed;
+
+    ResolvedHistory(IO io, Path settingsDir, String catalogVersion) {
+        this.io = io;
+        this.file = settingsDir.resolve(FILE);
+        this.version = catalogVersion;
+        if (Files.exists(file)) load();
+    }
+
+    /** @return the names of the projects the entry resolved to, if it has been resolved with the current catalog */
+    Optional<List<String>> get(Entry entry) { return Optional.ofNullable(resolved.get(entry.toString())); }
+
+    void put(Entry entry, Collection<Path> projects) {
+        resolved.put(entry.toString(), asNames(projects).toList());
+        changed = true;
+    }
+
+    /** Save the cache, keeping only the supplied entries */
+    void save(Collection<Entry> entries) {
+        Set<String> keys = entries.stream().map(Entry::toString).collect(toSet());
+        changed |= resolved.keySet().retainAll(keys);
+        if (!changed) return;
+        var contents = new StringBuilder(version).append(System.lineSeparator());
+        resolved.forEach((key, names) -> contents.append(key).append('\t').append(String.join(",", names)).append(System.lineSeparator()));
+        io.replaceFile(DESC, file, contents.toString());
+        changed = false;
+    }
+
+    private void load() {
+        var lines = new ArrayList<String>();
+        io.readFile(DESC, file, lines::add);
+        if (lines.isEmpty() || !lines.get(0).equals(version)) {
+            io.debugf("Discarding %s for a different catalog version", file);
+            changed = true;
+            return;
+        }
+        lines.stream().skip(1).forEach(line -> {
+            int tab = line.lastIndexOf('\t');
+            if (tab < 0) return;
+            String names = line.substring(tab + 1);
+            resolved.put(line.substring(0, tab), names.isEmpty() ? List.of() : List.of(names.split(",")));
+        });
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.cmd;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.reverseOrder;
+import static java.util.Map.Entry.comparingByValue;
+
+@Command(name = "stats", description = "Report timings and failures from past imports into the Eclipse workspace.")
+class StatsCommand extends AbstractCommand implements Runnable {
+    @Option(names = {"-t", "--top"}, paramLabel = "N", defaultValue = "10", description = "How many of the slowest and most failure-prone projects to show. Default: ${DEFAULT-VALUE}")
+    int top;
+
+    /** The totals for a single project, or a single day */
+    private static final class Tally {
+        int attempts;
+        int failures;
+        double seconds;
+    }
+
+    @Override
+    public void run() {
+        var batches = new ImportLog(io, elph.getWorkspaceSettingsDir()).read();
+        if (batches.isEmpty()) {
+            io.report("No imports recorded.");
+            return;
+        }
+        var byProject = new HashMap<String, Tally>();
+        var byDay = new TreeMap<LocalDate, Tally>();
+        for (var batch: batches) {
+            batch.projects().forEach(name -> byProject.computeIfAbsent(name, n -> new Tally()).attempts++);
+            batch.failed().forEach(name -> byProject.get(name).failures++);
+            var day = byDay.computeIfAbsent(LocalDate.ofInstant(batch.start(), ZoneId.systemDefault()), d -> new Tally());
+            day.attempts += batch.size();
+            day.failures += batch.failed().size();
+            day.seconds += batch.elapsed().toMillis() / 1000.0;
+        }
+        io.reportf("Batches recorded: %d, covering %d project(s)", batches.size(), byProject.size());
+
+        // the same averages the cost model learns from
+        io.reportf("Slowest projects (average seconds per import):");
+        ImportLog.averageMillis(batches).entrySet().stream()
+                .sorted(comparingByValue(reverseOrder()))
+                .limit(top)
+                .forEach(e -> io.reportf("  %8.1f  %s", e.getValue() / 1000, e.getKey()));
+
+        io.reportf("Most failure-prone projects:");
+        var failing = byProject.entrySet().stream()
+                .filter(e -> e.getValue().failures > 0)
+                .sorted(comparingByValue(comparing((Tally t) -> t.failures).reversed()))
+                .limit(top)
+                .toList();
+        if (failing.isEmpty()) io.report("  none");
+        failing.forEach(e -> io.reportf("  %s failed %d of %d time(s)", e.getKey(), e.getValue().failures, e.getValue().attempts));
+
+        io.reportf("Throughput by day:");
+        for (Map.Entry<LocalDate, Tally> e: byDay.entrySet()) {
+            var day = e.getValue();
+            int imported = day.attempts - day.failures;
+            io.reportf("  %s  %4d imported, %3d failed, %7.1f minutes, %6.1f projects/minute",
+                    e.getKey(), imported, day.failures, day.seconds / 60, imported * 60 / Math.max(day.seconds, 1));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.net.StandardProtocolFamily.UNIX;
+
+/**
+ * The client side of the elph daemon, and the protocol shared with {@link DaemonServer}.
+ * <p>
+ * A request is an int argument count followed by each argument as a modified UTF-8 string.
+ * A negative count asks the daemon to stop.
+ * The response is a sequence of frames, each a channel byte followed by an int.
+ * For the output channels, the int is a byte count and the bytes follow.
+ * For the exit channel, the int is the exit code and the response is complete.
+ */
+public enum Daemon {
+    ;
+    public static final Path SOCKET = Paths.get(System.getProperty("user.home")).resolve(".elph.sock");
+    /** Only commands that need no input from the user can be run remotely */
+    private static final Set<String> FORWARDED_COMMANDS = Set.of("list", "project", "check");
+    static final int STOP = -1;
+    static final byte EXIT = 0;
+    static final byte OUT = 1;
+    static final byte ERR = 2;
+
+    public static boolean isRunning() {
+        try (var channel = connect()) {
+            return channel.isConnected();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the exit code of the command, or nothing if the command could not be forwarded
+     */
+    public static OptionalInt forward(String... args) {
+        if (!isForwardable(args)) return OptionalInt.empty();
+        final SocketChannel channel;
+        try {
+            channel = connect();
+        } catch (IOException e) {
+            return OptionalInt.empty();
+        }
+        try (channel) {
+            var out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(args.length);
+            for (String arg: args) out.writeUTF(arg);
+            out.flush();
+            return OptionalInt.of(relay(new DataInputStream(Channels.newInputStream(channel))));
+        } catch (IOException e) {
+            System.err.println("Lost connection to elph daemon: " + e);
+            return OptionalInt.of(1);
+        }
+    }
+
+    /**
+     * @return true if a running daemon was asked to stop
+     */
+    public static boolean stop() {
+        try (var channel = connect()) {
+            var out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(STOP);
+            out.flush();
+            return 0 == relay(new DataInputStream(Channels.newInputStream(channel)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The first argument that is not an option names the subcommand.
+     * Anything more complicated (e.g. global options with parameters) is just run locally.
+     */
+    private static boolean isForwardable(String... args) {
+        return Stream.of(args)
+                .filter(arg -> !arg.startsWith("-"))
+                .findFirst()
+                .filter(FORWARDED_COMMANDS::contains)
+                .isPresent();
+    }
+
+    private static SocketChannel connect() throws IOException {
+        if (!Files.exists(SOCKET)) throw new IOException("No socket file found: " + SOCKET);
+        var channel = SocketChannel.open(UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(SOCKET));
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int relay(DataInputStream in) throws IOException {
+        for (;;) {
+            byte type = in.readByte();
+            int value = in.readInt();
+            if (EXIT == type) return value;
+            PrintStream target = ERR == type ? System.err : System.out;
+            target.write(in.readNBytes(value));
+            target.flush();
+        }
+    }
+}
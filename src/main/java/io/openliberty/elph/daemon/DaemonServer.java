@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.daemon;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+
+import static io.openliberty.elph.daemon.Daemon.ERR;
+import static io.openliberty.elph.daemon.Daemon.EXIT;
+import static io.openliberty.elph.daemon.Daemon.OUT;
+import static io.openliberty.elph.daemon.Daemon.SOCKET;
+import static io.openliberty.elph.daemon.Daemon.STOP;
+import static java.net.StandardProtocolFamily.UNIX;
+
+/**
+ * Serves requests from {@link Daemon#forward(String...)} one at a time.
+ * While a request is running, the standard output and error streams are redirected to the client.
+ */
+public final class DaemonServer {
+    public interface Executor { int execute(String... args); }
+
+    private final IO io;
+    private final Executor executor;
+    private volatile boolean stopped;
+
+    public DaemonServer(IO io, Executor executor) {
+        this.io = io;
+        this.executor = executor;
+    }
+
+    public void run() throws IOException {
+        // any existing socket file is stale, since no daemon answered on it
+        Files.deleteIfExists(SOCKET);
+        try (var server = ServerSocketChannel.open(UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(SOCKET));
+            Runtime.getRuntime().addShutdownHook(new Thread(this::deleteSocket));
+            io.reportf("Listening on %s", SOCKET);
+            while (!stopped) {
+                try (var channel = server.accept()) {
+                    serve(channel);
+                } catch (EOFException e) {
+                    // a client connected without making a request, e.g. to check the daemon is running
+                } catch (IOException e) {
+                    io.warn("Failed to serve request", e);
+                }
+            }
+            io.report("Stopped.");
+        } finally {
+            deleteSocket();
+        }
+    }
+
+    private void serve(SocketChannel channel) throws IOException {
+        var in = new DataInputStream(Channels.newInputStream(channel));
+        var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        int argc = in.readInt();
+        if (STOP == argc) {
+            stopped = true;
+            respond(out, 0);
+            return;
+        }
+        String[] args = new String[argc];
+        for (int i = 0; i < argc; i++) args[i] = in.readUTF();
+
+        long start = System.nanoTime();
+        var stdout = System.out;
+        var stderr = System.err;
+        var remoteOut = new PrintStream(new FrameOutputStream(out, OUT), true);
+        var remoteErr = new PrintStream(new FrameOutputStream(out, ERR), true);
+        int rc;
+        System.setOut(remoteOut);
+        System.setErr(remoteErr);
+        try {
+            rc = executor.execute(args);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            rc = 1;
+        } finally {
+            remoteOut.flush();
+            remoteErr.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        io.logf("Served request %s with exit code %d in %dms", String.join(" ", args), rc, (System.nanoTime() - start) / 1_000_000);
+        respond(out, rc);
+    }
+
+    private static void respond(DataOutputStream out, int rc) throws IOException {
+        out.writeByte(EXIT);
+        out.writeInt(rc);
+        out.flush();
+    }
+
+    private void deleteSocket() {
+        try {
+            Files.deleteIfExists(SOCKET);
+        } catch (IOException ignored) {}
+    }
+
+    /** Wraps each write in a frame for the specified channel */
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte channel;
+
+        FrameOutputStream(DataOutputStream out, byte channel) {
+            this.out = out;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException { write(new byte[]{(byte) b}, 0, 1); }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(channel);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException { out.flush(); }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.eclipse;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.function.Predicate.not;
+import static java.util.stream.Collectors.toCollection;
+
+/**
+ * A snapshot of the projects known to an Eclipse workspace, read from the directories in its <code>.projects</code> directory.
+ * The directory is only listed again when its modification time changes, and only newly listed projects are read then.
+ * Changes to the metadata of projects already known (e.g. closing a project) are only picked up after {@link #refresh()},
+ * when each project's metadata is read again if the modification time of its directory or its <code>.location</code> file has changed.
+ * <p>
+ * A change made in the same clock tick as a read would not alter the modification time,
+ * so a listing or a project's metadata is only trusted once it has been unchanged for longer than {@link IO#MTIME_GRANULARITY_MILLIS}.
+ */
+public final class EclipseWorkspace {
+    /**
+     * A project known to Eclipse.
+     * @param location where the project's files are
+     * @param open whether the project is open, inferred from its metadata (see {@link #CLOSED_TREE})
+     * @param repo the git repository containing the project, if any, with any symbolic links resolved
+     */
+    public record Project(String name, Path location, boolean open, Optional<Path> repo) {}
+
+    private record Stamp(FileTime dir, FileTime location) {}
+    private record Cached(Stamp stamp, Project project, boolean trusted) {}
+
+    /** Written by Eclipse when a project is closed, and deleted when it is opened again */
+    private static final String CLOSED_TREE = ".tree";
+    private static final String LOCATION = ".location";
+    /** Eclipse writes a 16-byte chunk marker before the location */
+    private static final int CHUNK_HEADER_BYTES = 16;
+    private static final String URI_PREFIX = "URI//";
+    private final IO io;
+    private final Path eclipseWorkspace;
+    private final Path dotProjects;
+    private final Path projectsRoot;
+    private final Path realProjectsRoot;
+    private final Map<Path, Optional<Path>> repos = new ConcurrentHashMap<>();
+    private Map<String, Cached> cache = Map.of();
+    private boolean stale;
+    private FileTime listedMtime;
+    private boolean trusted;
+    private Set<String> names = Set.of();
+    private Collection<Project> projects = Set.of();
+    private Set<Path> openProjects = Set.of();
+
+    /**
+     * @param eclipseWorkspace the Eclipse workspace, where projects with no recorded location live
+     * @param dotProjects the Eclipse workspace's <code>.projects</code> directory
+     * @param projectsRoot the directory containing the projects, i.e. the bnd workspace,
+     *                     which is how the locations of the projects it contains will be expressed
+     */
+    public EclipseWorkspace(IO io, Path eclipseWorkspace, Path dotProjects, Path projectsRoot) {
+        this.io = io;
+        this.eclipseWorkspace = eclipseWorkspace;
+        this.dotProjects = dotProjects;
+        this.projectsRoot = projectsRoot;
+        this.realProjectsRoot = IO.canonical(projectsRoot);
+    }
+
+    /** @return every known project, open or closed, in name order */
+    public synchronized Collection<Project> projects() {
+        update();
+        return projects;
+    }
+
+    /** @return the locations of the open projects, for constant-time membership tests, so in no particular order */
+    public synchronized Set<Path> openProjects() {
+        update();
+        return openProjects;
+    }
+
+    /** Check the metadata of every known project for changes on next use, e.g. at the start of each command */
+    public synchronized void refresh() { stale = true; }
+
+    private void update() {
+        final FileTime mtime;
+        try {
+            mtime = Files.getLastModifiedTime(dotProjects);
+        } catch (IOException e) {
+            throw io.error("Could not find Eclipse projects metadata location: " + dotProjects, "Exception was " + e);
+        }
+        boolean listed = !trusted || !mtime.equals(listedMtime);
+        if (listed) list(mtime);
+        if (!listed && !stale) return;
+        // only a refresh checks the projects already known, since their metadata can change without changing the listing
+        boolean checkKnown = stale;
+        stale = false;
+        var previous = cache;
+        var current = new ConcurrentHashMap<String, Cached>();
+        var changed = new AtomicBoolean(names.size() != previous.size());
+        names.parallelStream().forEach(name -> {
+            var known = previous.get(name);
+            if (null != known && !checkKnown) current.put(name, known);
+            else stamp(name).map(stamp -> check(name, stamp, known)).ifPresent(cached -> {
+                if (cached != known) changed.set(true);
+                current.put(name, cached);
+            });
+        });
+        this.cache = current;
+        if (!changed.get()) return;
+        var byName = new TreeMap<String, Project>();
+        current.forEach((name, cached) -> byName.put(name, cached.project()));
+        this.projects = unmodifiableCollection(byName.values());
+        HashSet<Path> open = byName.values().stream().filter(Project::open).map(Project::location).collect(toCollection(HashSet::new));
+        this.openProjects = unmodifiableSet(open);
+    }
+
+    private void list(FileTime mtime) {
+        long listedAt = System.currentTimeMillis();
+        io.debugf("Finding known projects");
+        try (Stream<Path> entries = Files.list(dotProjects)) {
+            TreeSet<String> newNames = entries
+                    .filter(Files::isDirectory)
+                    .map(Path::getFileName)
+                    .map(Path::toString)
+                    .filter(not(s -> s.startsWith(".")))
+                    .peek(s -> io.debugf("Known project: %s", s))
+                    .collect(toCollection(TreeSet::new));
+            this.names = unmodifiableSet(newNames);
+        } catch (IOException e) {
+            throw io.error("Could not enumerate Eclipse projects despite finding metadata location: " + dotProjects,
+                    "Exception was " + e);
+        }
+        this.listedMtime = mtime;
+        this.trusted = IO.isSettled(mtime, listedAt);
+    }
+
+    /** @return the cached metadata if it is trusted and still current, or else freshly read metadata */
+    private Cached check(String name, Stamp stamp, Cached known) {
+        if (null != known && known.trusted() && known.stamp().equals(stamp)) return known;
+        long readAt = System.currentTimeMillis();
+        return new Cached(stamp, read(name), IO.isSettled(stamp.dir(), readAt) && (null == stamp.location() || IO.isSettled(stamp.location(), readAt)));
+    }
+
+    /** @return the modification times of a project's metadata, or nothing if the project has been deleted since the listing */
+    private Optional<Stamp> stamp(String name) {
+        Path dir = dotProjects.resolve(name);
+        try {
+            FileTime dirTime = Files.getLastModifiedTime(dir);
+            Path location = dir.resolve(LOCATION);
+            return Optional.of(new Stamp(dirTime, Files.exists(location) ? Files.getLastModifiedTime(location) : null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            io.warn("Could not read Eclipse metadata for project " + name, e);
+            return Optional.empty();
+        }
+    }
+
+    private Project read(String name) {
+        Path dir = dotProjects.resolve(name);
+        Path realLocation = IO.canonical(readLocation(dir.resolve(LOCATION)).orElseGet(() -> eclipseWorkspace.resolve(name)));
+        Path parent = Objects.requireNonNullElse(realLocation.getParent(), realLocation);
+        // Eclipse may record a different spelling of the same directory (e.g. via a symbolic link),
+        // so express projects in the bnd workspace exactly as the catalog does, to let their paths be compared directly
+        Path location = parent.equals(realProjectsRoot) ? projectsRoot.resolve(realLocation.getFileName().toString()) : realLocation;
+        boolean open = !Files.exists(dir.resolve(CLOSED_TREE));
+        Optional<Path> repo = repos.computeIfAbsent(parent, EclipseWorkspace::findRepo);
+        io.debugf("Read metadata for project %s: %s, %s", name, location, open ? "open" : "closed");
+        return new Project(name, location, open, repo);
+    }
+
+    /**
+     * Read the location Eclipse records for a project outside the workspace directory.
+     * @return the location, or nothing if the project is in the workspace directory or the file cannot be understood
+     */
+    private Optional<Path> readLocation(Path file) {
+        if (!Files.exists(file)) return Optional.empty();
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            in.skipNBytes(CHUNK_HEADER_BYTES);
+            String location = in.readUTF();
+            // older versions of Eclipse recorded a plain path
+            if (!location.startsWith(URI_PREFIX)) return Optional.of(Paths.get(location));
+            return Optional.of(Paths.get(URI.create(location.substring(URI_PREFIX.length()))));
+        } catch (IOException | RuntimeException e) {
+            io.warn("Could not read Eclipse project location file " + file, e);
+            return Optional.empty();
+        }
+    }
+
+    /** @return the nearest directory at or above the supplied directory that contains a <code>.git</code> directory or file */
+    private static Optional<Path> findRepo(Path dir) {
+        for (Path p = dir; null != p; p = p.getParent()) if (Files.exists(p.resolve(".git"))) return Optional.of(p);
+        return Optional.empty();
+    }
+}
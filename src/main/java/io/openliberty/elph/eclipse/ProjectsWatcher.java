@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package io.openliberty.elph.eclipse;
+
+import io.openliberty.elph.util.IO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Waits for Eclipse to import projects, by watching for their directories to appear in the workspace's <code>.projects</code> directory.
+ * If the file system cannot be watched, it is polled instead.
+ * Either way, the directory is re-checked at least every {@link #POLL_INTERVAL}, in case a change is missed.
+ */
+public final class ProjectsWatcher implements Closeable {
+    static final Duration POLL_INTERVAL = Duration.ofSeconds(2);
+    private final Path dotProjects;
+    private final WatchService watchService;
+
+    public ProjectsWatcher(IO io, Path dotProjects) {
+        this.dotProjects = dotProjects;
+        WatchService service = null;
+        try {
+            service = dotProjects.getFileSystem().newWatchService();
+            dotProjects.register(service, ENTRY_CREATE);
+        } catch (IOException | UnsupportedOperationException e) {
+            io.logf("Polling %s because it cannot be watched: %s", dotProjects, e);
+            closeQuietly(service);
+            service = null;
+        }
+        this.watchService = service;
+    }
+
+    /**
+     * @return the names of the projects that are not yet in the workspace
+     */
+    public Set<String> missing(Collection<String> names) {
+        var missing = new TreeSet<>(names);
+        missing.removeIf(name -> Files.isDirectory(dotProjects.resolve(name)));
+        return missing;
+    }
+
+    /**
+     * Wait until every named project is in the workspace, or until the timeout expires.
+     * @return the names of the projects that did not appear in time
+     */
+    public Set<String> await(Collection<String> names, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (var missing = missing(names); ; missing = missing(missing)) {
+            long remaining = deadline - System.nanoTime();
+            if (missing.isEmpty() || remaining <= 0) return missing;
+            awaitChange(Math.min(remaining, POLL_INTERVAL.toNanos()));
+        }
+    }
+
+    /** Wait until something changes in the directory, or until the poll interval is up */
+    public void awaitChange() throws InterruptedException { awaitChange(POLL_INTERVAL.toNanos()); }
+
+    private void awaitChange(long nanos) throws InterruptedException {
+        if (null == watchService) {
+            NANOSECONDS.sleep(nanos);
+            return;
+        }
+        var key = watchService.poll(nanos, NANOSECONDS);
+        if (null == key) return;
+        // the directory is re-read anyway, so the events themselves are not needed
+        key.pollEvents();
+        key.reset();
+    }
+
+    @Override
+    public void close() { closeQuietly(watchService); }
+
+    private static void closeQuietly(WatchService service) {
+        if (null == service) return;
+        try {
+            service.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -32,6 +32,11 @@ import static io.openliberty.elph.util.IO.Verbosity.INFO;
 import static io.openliberty.elph.util.IO.Verbosity.LOG;
 import static io.openliberty.elph.util.IO.Verbosity.OFF;
 import static io.openliberty.elph.util.Objects.stringEquals;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
 import static java.util.function.Predicate.not;
 import static picocli.CommandLine.Help.Ansi.Style.bg_blue;
 import static picocli.CommandLine.Help.Ansi.Style.bg_red;
@@ -48,9 +53,47 @@ public class IO {
     /** Use statics so settings are global */
     private static Verbosity verbosity = OFF;
     private static boolean quiet;
+    /** When embedded (e.g. in a daemon), errors abort the current command instead of exiting the process */
+    private static boolean embedded;
     /** Single scanner for the whole process */
     final static Scanner SCANNER = new Scanner(System.in);
 
+    /** Thrown instead of exiting when an error occurs while embedded */
+    public static final class Abort extends Error {
+        private static final long serialVersionUID = 1L;
+        Abort(String message) { super(message); }
+    }
+
+    public static void setEmbedded(boolean value) { embedded = value; }
+
+    /** Restore the default settings before parsing a new command line in the same process */
+    public static void resetSettings() {
+        verbosity = OFF;
+        quiet = false;
+    }
+
+    /**
+     * @return the path with any symbolic links resolved, or (if it does not exist) just made absolute and normalized,
+     *         so that two spellings of the same location compare equal
+     */
+    public static Path canonical(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    /** Some file systems only record modification times to within 2 seconds */
+    public static final long MTIME_GRANULARITY_MILLIS = 2000;
+
+    /**
+     * A change made in the same clock tick as a read would not alter the modification time,
+     * so a file's modification time can only be trusted to reveal later changes once it is old enough.
+     * @return whether the modification time is far enough before the specified time to be trusted
+     */
+    public static boolean isSettled(FileTime mtime, long millis) { return mtime.toMillis() < millis - MTIME_GRANULARITY_MILLIS; }
+
     public static FileTime getLastModified(Path file) {
         if (Files.isRegularFile(file)) {
             try {
@@ -107,6 +150,7 @@ public class IO {
     public Error error(String message, Object... details) {
         System.err.println(blink.on() + bg_red.on() + fg_black.on() + bold.on() + "ERROR: " + message + reset.on());
         for (Object detail: details) System.err.println(detail);
+        if (embedded) throw new Abort(message);
         System.exit(1);
         throw new Error();
     }
@@ -170,6 +214,50 @@ public class IO {
         }
     }
 
+    /**
+     * Write to a temporary file and then rename it over the target, so that the target is never left partially written.
+     */
+    public void replaceFile(String desc, Path file, String contents) {
+        verifyOrCreateDir("Parent of " + desc, file.getParent());
+        try {
+            writeAtomically(file, contents);
+        } catch (IOException e) {
+            throw error("Could not write to " + desc + ": " + file, e);
+        }
+    }
+
+    public void replaceFile(String desc, Path file, byte[] contents) {
+        verifyOrCreateDir("Parent of " + desc, file.getParent());
+        try {
+            writeAtomically(file, contents);
+        } catch (IOException e) {
+            throw error("Could not write to " + desc + ": " + file, e);
+        }
+    }
+
+    public static void writeAtomically(Path file, String contents) throws IOException {
+        writeAtomically(file, contents.getBytes(UTF_8));
+    }
+
+    public static void writeAtomically(Path file, byte[] contents) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, contents);
+            Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void appendToFile(String desc, Path file, String contents) {
+        verifyOrCreateDir("Parent of " + desc, file.getParent());
+        try {
+            Files.writeString(file, contents, CREATE, APPEND);
+        } catch (IOException e) {
+            throw error("Could not append to " + desc + ": " + file, e);
+        }
+    }
+
     public void readFile(String desc, Path file, Consumer<String> actionPerLine) {
         try {
             Files.readAllLines(file).forEach(actionPerLine);
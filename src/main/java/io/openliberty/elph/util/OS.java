@@ -12,15 +12,36 @@
  */
 package io.openliberty.elph.util;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The platform specifics for launching Eclipse.
+ * Each platform has a limit on the size of a command line:
+ * <ul>
+ *     <li>Linux and Mac limit the total size of the arguments and the environment (<code>ARG_MAX</code>),
+ *     counting each string's bytes, its terminating NUL, and a pointer to it.
+ *     The limit is queried using <code>getconf ARG_MAX</code> (on Linux this already allows for the stack size limit).
+ *     If that fails, deliberately conservative values are assumed instead: 128KB for Linux and 256KB for Mac,
+ *     the smallest limits in common use, well below the usual 2MB on Linux and 1MB on current versions of macOS.
+ *     (Linux also limits each single argument to 128KB, which no project path comes near.)</li>
+ *     <li>Windows limits the command line string to 32767 characters,
+ *     counting a separating space and any quotes around each argument.</li>
+ * </ul>
+ */
 public enum OS {
-    LINUX("eclipse"),
-    MAC("Contents/MacOS/eclipse") {
+    LINUX("eclipse", 128 * 1024, true),
+    // launching via 'open' while another 'open' is in progress can lose the request
+    MAC("Contents/MacOS/eclipse", 256 * 1024, false) {
         Stream<Object> getArgStream(Path eclipseHome, Path eclipseWorkspace, Path... projects) {
             var exec = eclipseHome;
             return projects.length == 0 ?
@@ -28,9 +49,24 @@ public enum OS {
                     Stream.concat(Stream.of("open", "-a", exec), Stream.of(projects));
         }
     },
-    WINDOWS("eclipse.exe");
+    WINDOWS("eclipse.exe", 32767, true) {
+        long argSize(String arg) { return arg.length() + 1 + (arg.contains(" ") ? 2 : 0); }
+        long environmentSize() { return 0; }
+        long maxCommandSize() { return fallbackCommandSize; }
+    };
+    /** Leave room for anything not accounted for, such as auxiliary vectors or extra quoting */
+    private static final long HEADROOM = 4096;
     public final Path pathToExecutable;
-    OS(String exec) {this.pathToExecutable = Paths.get(exec);}
+    /** The limit to assume if the platform cannot be asked */
+    final long fallbackCommandSize;
+    public final boolean allowsConcurrentLaunches;
+    /** The limit reported by the platform, once queried */
+    private volatile long queriedCommandSize;
+    OS(String exec, long fallbackCommandSize, boolean allowsConcurrentLaunches) {
+        this.pathToExecutable = Paths.get(exec);
+        this.fallbackCommandSize = fallbackCommandSize;
+        this.allowsConcurrentLaunches = allowsConcurrentLaunches;
+    }
     public static OS current() {return valueOf(System.getProperty("os.name").toUpperCase().split(" ")[0]);}
     public static boolean is(OS os) { return current() == os; }
     public List<String> getEclipseCmd(Path eclipseHome, Path eclipseWorkspace, Path... projects) {
@@ -38,6 +74,62 @@ public enum OS {
                 .map(Objects::toString)
                 .toList();
     }
+
+    /**
+     * Split the projects across as few Eclipse commands as possible, without exceeding the limit on the size of a command line.
+     * A project whose path alone exceeds the limit gets a command to itself.
+     */
+    public List<List<String>> getEclipseCmds(Path eclipseHome, Path eclipseWorkspace, Collection<Path> projects) {
+        if (projects.isEmpty()) return List.of();
+        var first = projects.iterator().next();
+        long fixedSize = getEclipseCmd(eclipseHome, eclipseWorkspace, first).stream().mapToLong(this::argSize).sum() - argSize(first.toString());
+        long budget = maxCommandSize() - HEADROOM - environmentSize() - fixedSize;
+        var cmds = new ArrayList<List<String>>();
+        var batch = new ArrayList<Path>();
+        long size = 0;
+        for (Path p: projects) {
+            long argSize = argSize(p.toString());
+            if (!batch.isEmpty() && size + argSize > budget) {
+                cmds.add(getEclipseCmd(eclipseHome, eclipseWorkspace, batch.toArray(Path[]::new)));
+                batch.clear();
+                size = 0;
+            }
+            batch.add(p);
+            size += argSize;
+        }
+        cmds.add(getEclipseCmd(eclipseHome, eclipseWorkspace, batch.toArray(Path[]::new)));
+        return cmds;
+    }
+
+    /** @return the limit on the size of a command line, including the environment */
+    long maxCommandSize() {
+        if (0 == queriedCommandSize) queriedCommandSize = queryArgMax().orElse(fallbackCommandSize);
+        return queriedCommandSize;
+    }
+
+    private static OptionalLong queryArgMax() {
+        try {
+            var p = new ProcessBuilder("getconf", "ARG_MAX").redirectErrorStream(true).start();
+            var output = new String(p.getInputStream().readAllBytes(), UTF_8).trim();
+            if (p.waitFor() != 0) return OptionalLong.empty();
+            long argMax = Long.parseLong(output);
+            return argMax > 0 ? OptionalLong.of(argMax) : OptionalLong.empty();
+        } catch (IOException | RuntimeException e) {
+            return OptionalLong.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return OptionalLong.empty();
+        }
+    }
+
+    /** The space taken by an argument: its bytes, its terminating NUL, and its pointer in <code>argv</code> */
+    long argSize(String arg) { return arg.getBytes(UTF_8).length + 1 + Long.BYTES; }
+
+    /** The space taken by the environment, which the child process inherits */
+    long environmentSize() {
+        return System.getenv().entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).mapToLong(this::argSize).sum();
+    }
+
     Stream<Object> getArgStream(Path eclipseHome, Path eclipseWorkspace, Path... projects) {
         var exec = eclipseHome.resolve(pathToExecutable);
         return projects.length == 0 ?